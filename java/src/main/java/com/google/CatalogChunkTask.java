@@ -0,0 +1,68 @@
+package com.google;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/** The class used to parse a line-aligned chunk of a mapped catalog on a {@link ForkJoinPool}. */
+@SuppressWarnings("serial")
+final class CatalogChunkTask extends RecursiveTask<List<Video>> {
+    private static final int MIN_CHUNK = 1 << 16;       // Smaller chunks aren't worth forking
+
+    private final ByteBuffer buffer;
+    private final TagDictionary dictionary;
+    private final int from;
+    private final int to;
+
+    private CatalogChunkTask(ByteBuffer buffer, TagDictionary dictionary, int from, int to) {
+        this.buffer = buffer;
+        this.dictionary = dictionary;
+        this.from = from;
+        this.to = to;
+    }
+
+    /** Splits [0, limit) of a buffer into line-aligned chunks and parses them in parallel,
+     * returning the parsed videos of each chunk in file order. */
+    static List<List<Video>> parseAll(
+        ForkJoinPool pool,
+        ByteBuffer buffer,
+        int limit,
+        TagDictionary dictionary
+    ) {
+        final int chunk = Math.max(MIN_CHUNK, limit / (pool.getParallelism() * 4));
+        final List<CatalogChunkTask> tasks = new ArrayList<>();
+        int start = 0;
+        while (start < limit) {
+            int end = (int) Math.min((long) start + chunk, limit);
+            while (end < limit && buffer.get(end - 1) != '\n')
+                end++;
+            tasks.add(new CatalogChunkTask(buffer, dictionary, start, end));
+            start = end;
+        }
+
+        return pool.invoke(
+            new RecursiveTask<List<List<Video>>>() {
+                @Override
+                protected List<List<Video>> compute() {
+                    invokeAll(tasks);
+                    final List<List<Video>> parsed = new ArrayList<>(tasks.size());
+                    tasks.forEach(task -> parsed.add(task.join()));
+                    return parsed;
+                }
+            }
+        );
+    }
+
+    @Override
+    protected List<Video> compute() {
+        final List<Video> parsed = new ArrayList<>();
+        new CatalogParser(this.buffer.duplicate(), this.dictionary).parse(
+            this.from,
+            this.to,
+            (title, id, tags) -> parsed.add(new Video(title, id, tags, this.dictionary))
+        );
+        return parsed;
+    }
+}
@@ -0,0 +1,116 @@
+package com.google;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/** The tool used to compile a text catalog into the binary snapshot read by
+ * {@link CompiledCatalog}.
+ *
+ * <p>Usage: {@code CatalogCompiler [source] [snapshot]}, defaulting to the configured catalog and
+ * the snapshot path it is loaded from.
+ */
+public class CatalogCompiler {
+    public static void main(String[] args) throws IOException {
+        final File source = args.length > 0 ? new File(args[0]) : VideoLibrary.catalogFile();
+        final Path target = args.length > 1
+            ? Paths.get(args[1])
+            : VideoLibrary.snapshotFile(source).toPath();
+        final int count = compile(source, target);
+        System.out.printf("Compiled %d videos from %s into %s\n", count, source, target);
+    }
+
+    /** Compiles a text catalog into a snapshot at the given path, returning the number of videos
+     * written. The catalog's size and modification time are recorded (the latter read before
+     * parsing, so an edit made meanwhile leaves the snapshot stale). The snapshot is written to a
+     * temporary file first and then moved into place. */
+    static int compile(File source, Path target) throws IOException {
+        final long modified = Files.getLastModifiedTime(source.toPath()).toMillis();
+        final List<Video> videos = new VideoLibrary(CatalogLoader.PARALLEL, source).getVideos();
+
+        final Map<String, Integer> tagIndex = new LinkedHashMap<>();
+        final ByteArrayOutputStream tags = new ByteArrayOutputStream();
+        final ByteArrayOutputStream records = new ByteArrayOutputStream();
+        final int[] offsets = new int[videos.size()];
+        for (int i = 0; i < videos.size(); i++) {
+            final Video vid = videos.get(i);
+            offsets[i] = records.size();
+            writeString(records, vid.getTitle());
+            writeString(records, vid.getVideoId());
+            writeVarint(records, vid.getTags().size());
+            for (String tag : vid.getTags()) {
+                Integer index = tagIndex.get(tag);
+                if (index == null) {
+                    index = tagIndex.size();
+                    tagIndex.put(tag, index);
+                    writeString(tags, tag);
+                }
+                writeVarint(records, index);
+            }
+        }
+
+        int capacity = 2;
+        while (capacity < videos.size() * 2)
+            capacity <<= 1;
+
+        final int recordsOffset = CompiledCatalog.HEADER_SIZE + tags.size();
+        final long tableOffset = (long) recordsOffset + records.size();
+        final long size = tableOffset + capacity * 4L + 4;
+        if (size > Integer.MAX_VALUE)
+            throw new IOException("Catalog is too large to compile into a single snapshot");
+
+        final ByteBuffer out = ByteBuffer.allocate((int) size);
+        out.putInt(CompiledCatalog.MAGIC)
+           .putInt(CompiledCatalog.VERSION)
+           .putLong(source.length())
+           .putLong(modified)
+           .putInt(videos.size())
+           .putInt(tagIndex.size())
+           .putInt(recordsOffset)
+           .putInt((int) tableOffset)
+           .putInt(capacity)
+           .put(tags.toByteArray())
+           .put(records.toByteArray());
+
+        final int mask = capacity - 1;
+        for (int i = 0; i < videos.size(); i++) {
+            int slot = CompiledCatalog.spread(videos.get(i).getVideoId().hashCode()) & mask;
+            while (out.getInt((int) tableOffset + slot * 4) != 0)
+                slot = (slot + 1) & mask;
+            out.putInt((int) tableOffset + slot * 4, recordsOffset + offsets[i]);
+        }
+
+        final CRC32 crc = new CRC32();
+        crc.update(out.array(), 0, (int) size - 4);
+        out.putInt((int) size - 4, (int) crc.getValue());
+
+        final Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        Files.write(tmp, out.array());
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+        return videos.size();
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String s) {
+        final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+}
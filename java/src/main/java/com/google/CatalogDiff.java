@@ -0,0 +1,84 @@
+package com.google;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/** The class used to represent the entries added, removed and changed between two versions of
+ * the video catalog. Both versions must share a {@link TagDictionary} for tags to compare. */
+final class CatalogDiff {
+    private final List<Video> added = new ArrayList<>();
+    private final List<Video> changed = new ArrayList<>();
+    private final List<String> removed = new ArrayList<>();
+
+    private CatalogDiff() {}
+
+    /** Compares the currently loaded videos against those of a freshly parsed catalog. */
+    static CatalogDiff between(VideoStore current, VideoStore fresh) {
+        final CatalogDiff diff = new CatalogDiff();
+        fresh.forEach(
+            vid -> {
+                final Video cur = current.get(vid.getVideoId());
+                if (cur == null)
+                    diff.added.add(vid);
+                else if (!cur.getTitle().equals(vid.getTitle())
+                         || !Arrays.equals(cur.getTagIds(), vid.getTagIds()))
+                    diff.changed.add(vid);
+            }
+        );
+        current.forEach(
+            vid -> {
+                if (fresh.get(vid.getVideoId()) == null)
+                    diff.removed.add(vid.getVideoId());
+            }
+        );
+
+        return diff;
+    }
+
+    /** Returns the IDs of the entries removed. */
+    List<String> getRemoved() {
+        return this.removed;
+    }
+
+    /** Determines whether the two catalog versions are identical. */
+    boolean isEmpty() {
+        return this.added.isEmpty() && this.changed.isEmpty() && this.removed.isEmpty();
+    }
+
+    /** Applies the diff to the loaded videos, keeping an index in step. Changed entries are
+     * updated in place so existing {@link Video} instances, along with their flags and playlist
+     * membership, are kept. */
+    void applyTo(VideoStore videos, VideoIndex index) {
+        this.removed.forEach(
+            id -> {
+                index.remove(videos.get(id));
+                videos.remove(id);
+            }
+        );
+        this.added.forEach(
+            vid -> {
+                videos.put(vid);
+                index.add(videos.get(vid.getVideoId()));
+            }
+        );
+        this.changed.forEach(
+            vid -> {
+                index.remove(videos.get(vid.getVideoId()));
+                videos.update(vid);
+                index.add(videos.get(vid.getVideoId()));
+            }
+        );
+    }
+
+    /** Displays the diff as required in {@link String} form. */
+    @Override
+    public String toString() {
+        return String.format(
+            "%d added, %d removed, %d changed",
+            this.added.size(),
+            this.removed.size(),
+            this.changed.size()
+        );
+    }
+}
@@ -0,0 +1,68 @@
+package com.google;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** The class used to record the per-phase timings of a catalog load. */
+public class CatalogLoadMetrics {
+    private final CatalogLoader loader;
+    private final Map<String, Long> phases;
+    private int entries = 0;
+
+    CatalogLoadMetrics(CatalogLoader loader) {
+        this.loader = loader;
+        this.phases = new LinkedHashMap<>();
+    }
+
+    /** Adds the time (in nanoseconds) spent in a named phase, accumulating repeat phases. */
+    void record(String phase, long nanos) {
+        this.phases.merge(phase, nanos, Long::sum);
+    }
+
+    /** Sets the number of entries held by the library once loading has finished. */
+    void setEntries(int entries) {
+        this.entries = entries;
+    }
+
+    /** Returns the loader the metrics were recorded for. */
+    public CatalogLoader getLoader() {
+        return this.loader;
+    }
+
+    /** Returns a read-only mapping of each phase (in execution order) to its duration in
+     * nanoseconds. */
+    public Map<String, Long> getPhases() {
+        return Collections.unmodifiableMap(this.phases);
+    }
+
+    /** Returns the combined duration of all phases in nanoseconds. */
+    public long getTotalNanos() {
+        return this.phases.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    /** Returns the number of entries held by the library once loading finished. */
+    public int getEntries() {
+        return this.entries;
+    }
+
+    /** Displays the metrics as required in {@link String} form. */
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder(
+            String.format(
+                "Loaded %d videos (%s) in %.1f ms",
+                this.entries,
+                this.loader.name().toLowerCase(),
+                this.getTotalNanos() / 1e6
+            )
+        );
+        String sep = " [";
+        for (Map.Entry<String, Long> phase : this.phases.entrySet()) {
+            sb.append(String.format("%s%s: %.1f ms", sep, phase.getKey(), phase.getValue() / 1e6));
+            sep = ", ";
+        }
+
+        return this.phases.isEmpty() ? sb.toString() : sb.append("]").toString();
+    }
+}
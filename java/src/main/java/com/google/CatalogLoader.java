@@ -0,0 +1,31 @@
+package com.google;
+
+import java.util.Locale;
+
+/** The strategies available for loading the video catalog, selected through the
+ * {@code videos.loader} system property. */
+public enum CatalogLoader {
+    /** Reads the catalog line by line using {@link java.util.Scanner} and regex splitting. */
+    SCANNER,
+    /** Memory-maps the catalog and parses it straight from the mapped bytes. */
+    MAPPED,
+    /** Memory-maps the catalog and parses line-aligned chunks of it on a fork-join pool. */
+    PARALLEL,
+    /** Opens a snapshot compiled by {@link CatalogCompiler}, decoding videos on request. Falls
+     * back to {@link #PARALLEL} if the snapshot is missing or doesn't match the catalog. */
+    SNAPSHOT;
+
+    /** Returns the loader named by the {@code videos.loader} property, defaulting to
+     * {@link #SCANNER}. */
+    public static CatalogLoader fromConfig() {
+        final String name = System.getProperty("videos.loader");
+        if (name == null || name.isBlank())
+            return SCANNER;
+
+        try {
+            return valueOf(name.strip().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown catalog loader: " + name, e);
+        }
+    }
+}
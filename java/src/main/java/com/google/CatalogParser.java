@@ -0,0 +1,98 @@
+package com.google;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/** The class used to parse catalog entries ({@code title | id | tags}) straight from a byte
+ * buffer in a single hand-written pass, avoiding regex splitting and intermediate arrays. */
+final class CatalogParser {
+    /** The callback receiving each entry parsed from the catalog. */
+    interface Sink {
+        void accept(String title, String id, int[] tags);
+    }
+
+    private final ByteBuffer buffer;
+    private final TagDictionary dictionary;
+    private byte[] scratch = new byte[128];             // Reused when decoding each field
+    private int[] tagScratch = new int[8];              // Reused when collecting each line's tags
+
+    CatalogParser(ByteBuffer buffer, TagDictionary dictionary) {
+        this.buffer = buffer;
+        this.dictionary = dictionary;
+    }
+
+    /** Parses each line within the given range, which must begin at the start of a line. Blank
+     * lines and lines lacking an ID are skipped. */
+    void parse(int from, int to, Sink sink) {
+        int start = from;
+        while (start < to) {
+            final int end = this.indexOf((byte) '\n', start, to);
+            this.parseLine(start, end, sink);
+            start = end + 1;
+        }
+    }
+
+    /** Parses a single {@code title | id | tags} line into its fields. */
+    private void parseLine(int start, int end, Sink sink) {
+        final int p1 = this.indexOf((byte) '|', start, end);
+        if (p1 == end)
+            return;
+
+        final int p2 = this.indexOf((byte) '|', p1 + 1, end);
+        final String id = this.decode(p1 + 1, p2);
+        if (id.isEmpty())
+            return;
+
+        int n = 0;
+        int tagStart = p2 + 1;
+        while (tagStart < end) {
+            final int tagEnd = this.indexOf((byte) ',', tagStart, end);
+            final String tag = this.decode(tagStart, tagEnd);
+            if (!tag.isEmpty()) {
+                if (n == this.tagScratch.length)
+                    this.tagScratch = Arrays.copyOf(this.tagScratch, n * 2);
+                this.tagScratch[n++] = this.dictionary.intern(tag);
+            }
+            tagStart = tagEnd + 1;
+        }
+
+        sink.accept(
+            this.decode(start, p1),
+            id,
+            n == 0 ? TagDictionary.NONE : Arrays.copyOf(this.tagScratch, n)
+        );
+    }
+
+    /** Returns the position of the next occurrence of a byte in [from, to), or to if absent. */
+    private int indexOf(byte b, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (this.buffer.get(i) == b)
+                return i;
+        }
+
+        return to;
+    }
+
+    /** Decodes the whitespace-stripped UTF-8 field within [from, to). */
+    private String decode(int from, int to) {
+        while (from < to && isWhitespace(this.buffer.get(from)))
+            from++;
+        while (to > from && isWhitespace(this.buffer.get(to - 1)))
+            to--;
+        if (from == to)
+            return "";
+
+        final int len = to - from;
+        if (len > this.scratch.length)
+            this.scratch = new byte[Math.max(len, this.scratch.length * 2)];
+        for (int i = 0; i < len; i++)
+            this.scratch[i] = this.buffer.get(from + i);
+
+        return new String(this.scratch, 0, len, StandardCharsets.UTF_8);
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\f' || b == 0x0B;
+    }
+}
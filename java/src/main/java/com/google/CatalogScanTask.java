@@ -0,0 +1,76 @@
+package com.google;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Predicate;
+
+/** The class used to filter a partition of the title-ordered catalog on a {@link ForkJoinPool},
+ * for searches no index can serve. Partitions are contiguous ranges of the title order, so each
+ * one's matches are already sorted and merging them is a concatenation in partition order. */
+@SuppressWarnings("serial")
+final class CatalogScanTask extends RecursiveTask<List<Video>> {
+    private static final int MIN_PARTITION = 1 << 12;  // Smaller partitions aren't worth forking
+
+    private final List<Video> videos;
+    private final Predicate<? super Video> filter;
+    private final int from;
+    private final int to;
+
+    private CatalogScanTask(List<Video> videos, Predicate<? super Video> filter, int from, int to) {
+        this.videos = videos;
+        this.filter = filter;
+        this.from = from;
+        this.to = to;
+    }
+
+    /** Returns the number of videos from which searches fork by default, read from the
+     * {@code videos.scan.parallel} property (default 50000). */
+    static int threshold() {
+        return Integer.getInteger("videos.scan.parallel", 50_000);
+    }
+
+    /** Returns the videos of a title-ordered list which pass a filter, in the same order. Lists
+     * shorter than a given threshold are scanned on the calling thread; longer ones are split
+     * into partitions filtered in parallel. The filter must be safe to call concurrently. */
+    static List<Video> scan(
+        ForkJoinPool pool,
+        List<Video> videos,
+        Predicate<? super Video> filter,
+        int threshold
+    ) {
+        if (videos.size() < threshold)
+            return new CatalogScanTask(videos, filter, 0, videos.size()).compute();
+
+        final int size = Math.max(MIN_PARTITION, videos.size() / (pool.getParallelism() * 4));
+        final List<CatalogScanTask> tasks = new ArrayList<>();
+        for (int start = 0; start < videos.size(); start += size) {
+            final int end = Math.min(start + size, videos.size());
+            tasks.add(new CatalogScanTask(videos, filter, start, end));
+        }
+
+        return pool.invoke(
+            new RecursiveTask<List<Video>>() {
+                @Override
+                protected List<Video> compute() {
+                    invokeAll(tasks);
+                    final List<Video> matches = new ArrayList<>();
+                    tasks.forEach(task -> matches.addAll(task.join()));
+                    return matches;
+                }
+            }
+        );
+    }
+
+    @Override
+    protected List<Video> compute() {
+        final List<Video> matches = new ArrayList<>();
+        for (int i = this.from; i < this.to; i++) {
+            final Video vid = this.videos.get(i);
+            if (this.filter.test(vid))
+                matches.add(vid);
+        }
+        return matches;
+    }
+}
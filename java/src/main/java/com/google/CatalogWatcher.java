@@ -0,0 +1,71 @@
+package com.google;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+/** The class used to watch the catalog file on a background thread, staging a reload of the
+ * {@link VideoLibrary} whenever the file changes. */
+public final class CatalogWatcher implements Closeable {
+    private static final long SETTLE_MS = 200;          // Lets bursts of writes coalesce
+
+    private final WatchService service;
+    private final Thread thread;
+
+    CatalogWatcher(VideoLibrary library, Path catalog) throws IOException {
+        final Path dir = catalog.toAbsolutePath().getParent();
+        this.service = dir.getFileSystem().newWatchService();
+        dir.register(
+            this.service,
+            StandardWatchEventKinds.ENTRY_CREATE,
+            StandardWatchEventKinds.ENTRY_MODIFY
+        );
+        this.thread = new Thread(
+            () -> this.watch(library, catalog.getFileName()),
+            "catalog-watcher"
+        );
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /** Waits for changes to the catalog, staging a reload once a burst of events settles. */
+    private void watch(VideoLibrary library, Path name) {
+        try {
+            while (true) {
+                WatchKey key = this.service.take();
+                boolean changed = false;
+                while (key != null) {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (name.equals(event.context()))
+                            changed = true;
+                    }
+                    key.reset();
+                    key = changed ? this.service.poll(SETTLE_MS, TimeUnit.MILLISECONDS) : null;
+                }
+
+                if (changed) {
+                    try {
+                        library.stageReload();
+                    } catch (RuntimeException e) {
+                        e.printStackTrace();
+                    }
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // The watcher has been closed
+        }
+    }
+
+    /** Stops watching the catalog. */
+    @Override
+    public void close() throws IOException {
+        this.service.close();
+        this.thread.interrupt();
+    }
+}
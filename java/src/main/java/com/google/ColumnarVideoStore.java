@@ -0,0 +1,368 @@
+package com.google;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/** The class used to store videos column-wise in primitive arrays instead of as one object per
+ * video. Titles and IDs are packed as UTF-8 into a shared byte arena, tag IDs into a shared pool
+ * and flags into a bit set, so the catalog costs a handful of large arrays rather than millions
+ * of small objects. Lightweight {@link Video} views are handed out on demand, reading and writing
+ * through to the columns.
+ *
+ * <p>Rewriting or removing a video leaves its old bytes and tag IDs behind, unused; once those
+ * outweigh the ones in use, the arena and pool are compacted, copying each live slot's along. */
+final class ColumnarVideoStore implements VideoStore {
+    private byte[] text = new byte[1 << 12];            // UTF-8 titles and IDs of every slot
+    private int textSize = 0;
+    private int deadText = 0;                           // Arena bytes no slot uses any more
+    private int[] tagPool = new int[1 << 10];           // Tag IDs of every slot
+    private int tagPoolSize = 0;
+    private int deadTags = 0;                           // Pool entries no slot uses any more
+    private int compactions = 0;                        // Times the arena and pool were compacted
+
+    private int[] titleStart = new int[16];             // Title bytes in [titleStart, idStart)
+    private int[] idStart = new int[16];                // ID bytes in [idStart, idEnd)
+    private int[] idEnd = new int[16];
+    private int[] tagStart = new int[16];               // Tag IDs in [tagStart, tagEnd)
+    private int[] tagEnd = new int[16];
+    private int[] hashes = new int[16];                 // ID hash codes, kept for resizing
+    private final BitSet live = new BitSet();
+    private final BitSet flagged = new BitSet();
+    private final Map<Integer, String> reasons = new HashMap<>();   // Sparse, few are flagged
+    private int slots = 0;
+    private int size = 0;
+
+    private int[] table = new int[32];                  // Open-addressed ID index of slot + 1
+    private TagDictionary dictionary = null;            // Taken from the first video stored
+
+    @Override
+    public Video get(String id) {
+        final int index = this.indexOf(id);
+        return index < 0 ? null : new View(this.table[index] - 1);
+    }
+
+    @Override
+    public void put(Video vid) {
+        if (this.dictionary == null)
+            this.dictionary = vid.getTagDictionary();
+
+        final String id = vid.getVideoId();
+        final int index = this.indexOf(id);
+        int slot;
+        if (index >= 0) {
+            slot = this.table[index] - 1;
+            this.release(slot);
+        } else {
+            slot = this.allocate(id);
+            this.live.set(slot);
+            this.size++;
+            if (this.size * 2 > this.table.length)
+                this.resize(this.table.length * 2);
+            this.insert(slot);
+        }
+
+        this.write(slot, vid);
+        this.flagged.set(slot, vid.isFlagged());
+        if (vid.isFlagged())
+            this.reasons.put(slot, vid.getFlag());
+        else
+            this.reasons.remove(slot);
+        this.compactIfSparse();
+    }
+
+    @Override
+    public void update(Video source) {
+        final int index = this.indexOf(source.getVideoId());
+        if (index >= 0) {
+            this.release(this.table[index] - 1);
+            this.write(this.table[index] - 1, source);
+            this.compactIfSparse();
+        }
+    }
+
+    @Override
+    public boolean remove(String id) {
+        int index = this.indexOf(id);
+        if (index < 0)
+            return false;
+
+        final int slot = this.table[index] - 1;
+        this.release(slot);
+        this.live.clear(slot);
+        this.flagged.clear(slot);
+        this.reasons.remove(slot);
+        this.size--;
+
+        // Backward-shift deletion keeps every remaining probe sequence unbroken
+        final int mask = this.table.length - 1;
+        int next = (index + 1) & mask;
+        while (this.table[next] != 0) {
+            final int home = CompiledCatalog.spread(this.hashes[this.table[next] - 1]) & mask;
+            if (((next - home) & mask) >= ((next - index) & mask)) {
+                this.table[index] = this.table[next];
+                index = next;
+            }
+            next = (next + 1) & mask;
+        }
+        this.table[index] = 0;
+        this.compactIfSparse();
+        return true;
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    @Override
+    public void forEach(Consumer<? super Video> action) {
+        for (int slot = this.live.nextSetBit(0); slot >= 0; slot = this.live.nextSetBit(slot + 1))
+            action.accept(new View(slot));
+    }
+
+    /** Assigns the next free slot to a new ID, growing the columns if required. */
+    private int allocate(String id) {
+        if (this.slots == this.titleStart.length) {
+            final int n = this.slots * 2;
+            this.titleStart = Arrays.copyOf(this.titleStart, n);
+            this.idStart = Arrays.copyOf(this.idStart, n);
+            this.idEnd = Arrays.copyOf(this.idEnd, n);
+            this.tagStart = Arrays.copyOf(this.tagStart, n);
+            this.tagEnd = Arrays.copyOf(this.tagEnd, n);
+            this.hashes = Arrays.copyOf(this.hashes, n);
+        }
+        this.hashes[this.slots] = id.hashCode();
+        return this.slots++;
+    }
+
+    /** Writes a video's title, ID and tags into a slot, after the end of the arena and pool. */
+    private void write(int slot, Video vid) {
+        this.titleStart[slot] = this.append(vid.getTitle());
+        this.idStart[slot] = this.textSize;
+        this.append(vid.getVideoId());
+        this.idEnd[slot] = this.textSize;
+
+        final int[] tags = vid.getTagIds();
+        if (this.tagPoolSize + tags.length > this.tagPool.length)
+            this.tagPool = Arrays.copyOf(
+                this.tagPool,
+                Math.max(this.tagPool.length * 2, this.tagPoolSize + tags.length)
+            );
+        System.arraycopy(tags, 0, this.tagPool, this.tagPoolSize, tags.length);
+        this.tagStart[slot] = this.tagPoolSize;
+        this.tagPoolSize += tags.length;
+        this.tagEnd[slot] = this.tagPoolSize;
+    }
+
+    /** Counts a slot's bytes and tag IDs as unused, as it is about to be rewritten or removed. */
+    private void release(int slot) {
+        this.deadText += this.idEnd[slot] - this.titleStart[slot];
+        this.deadTags += this.tagEnd[slot] - this.tagStart[slot];
+    }
+
+    /** Compacts the arena and pool if more of either is unused than used. */
+    private void compactIfSparse() {
+        if (this.deadText * 2 > this.textSize || this.deadTags * 2 > this.tagPoolSize)
+            this.compact();
+    }
+
+    /** Copies each live slot's bytes and tag IDs, in slot order, into a fresh arena and pool
+     * sized to fit them, leaving every other slot empty. */
+    private void compact() {
+        final byte[] text = new byte[Math.max(16, this.textSize - this.deadText)];
+        final int[] tagPool = new int[Math.max(16, this.tagPoolSize - this.deadTags)];
+        int textSize = 0, tagPoolSize = 0;
+        for (int slot = 0; slot < this.slots; slot++) {
+            if (!this.live.get(slot)) {
+                this.titleStart[slot] = this.idStart[slot] = this.idEnd[slot] = 0;
+                this.tagStart[slot] = this.tagEnd[slot] = 0;
+                continue;
+            }
+
+            final int shift = textSize - this.titleStart[slot],
+                      length = this.idEnd[slot] - this.titleStart[slot];
+            System.arraycopy(this.text, this.titleStart[slot], text, textSize, length);
+            this.titleStart[slot] += shift;
+            this.idStart[slot] += shift;
+            this.idEnd[slot] += shift;
+            textSize += length;
+
+            final int tags = this.tagEnd[slot] - this.tagStart[slot];
+            System.arraycopy(this.tagPool, this.tagStart[slot], tagPool, tagPoolSize, tags);
+            this.tagStart[slot] = tagPoolSize;
+            tagPoolSize += tags;
+            this.tagEnd[slot] = tagPoolSize;
+        }
+
+        this.text = text;
+        this.textSize = textSize;
+        this.deadText = 0;
+        this.tagPool = tagPool;
+        this.tagPoolSize = tagPoolSize;
+        this.deadTags = 0;
+        this.compactions++;
+    }
+
+    /** Returns the number of arena bytes taken, whether used or not. */
+    int arenaSize() {
+        return this.textSize;
+    }
+
+    /** Appends a string's UTF-8 bytes to the arena, returning where they start. */
+    private int append(String s) {
+        final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        if (this.textSize + bytes.length > this.text.length)
+            this.text = Arrays.copyOf(
+                this.text,
+                Math.max(this.text.length * 2, this.textSize + bytes.length)
+            );
+        System.arraycopy(bytes, 0, this.text, this.textSize, bytes.length);
+        final int start = this.textSize;
+        this.textSize += bytes.length;
+        return start;
+    }
+
+    /** Returns the position of an ID within the index table, or -1 if not found. */
+    private int indexOf(String id) {
+        final byte[] key = id.getBytes(StandardCharsets.UTF_8);
+        final int hash = id.hashCode(),
+                  mask = this.table.length - 1;
+        for (int i = CompiledCatalog.spread(hash) & mask; this.table[i] != 0; i = (i + 1) & mask) {
+            final int slot = this.table[i] - 1;
+            if (this.hashes[slot] == hash && this.idEquals(slot, key))
+                return i;
+        }
+
+        return -1;
+    }
+
+    private boolean idEquals(int slot, byte[] key) {
+        final int start = this.idStart[slot];
+        if (this.idEnd[slot] - start != key.length)
+            return false;
+        for (int i = 0; i < key.length; i++) {
+            if (this.text[start + i] != key[i])
+                return false;
+        }
+
+        return true;
+    }
+
+    private void insert(int slot) {
+        final int mask = this.table.length - 1;
+        int i = CompiledCatalog.spread(this.hashes[slot]) & mask;
+        while (this.table[i] != 0)
+            i = (i + 1) & mask;
+        this.table[i] = slot + 1;
+    }
+
+    private void resize(int capacity) {
+        final int[] old = this.table;
+        this.table = new int[capacity];
+        for (int entry : old) {
+            if (entry != 0)
+                this.insert(entry - 1);
+        }
+    }
+
+    private String decode(int from, int to) {
+        return new String(this.text, from, to - from, StandardCharsets.UTF_8);
+    }
+
+    /** The class used to represent a view of a single slot's columns as a {@link Video}. */
+    private final class View extends Video {
+        private final int slot;
+        private String folded = null;           // Folded title, valid while both below match
+        private int foldedFrom = -1;
+        private int foldedCompactions = -1;
+
+        View(int slot) {
+            super(ColumnarVideoStore.this.dictionary);
+            this.slot = slot;
+        }
+
+        @Override
+        public String getTitle() {
+            return decode(titleStart[this.slot], idStart[this.slot]);
+        }
+
+        /** Folds the slot's title once per version of it, as the arena is append-only between
+         * compactions and a rewritten title starts elsewhere. */
+        @Override
+        String getFoldedTitle() {
+            if (this.foldedFrom != titleStart[this.slot] || this.foldedCompactions != compactions) {
+                this.folded = fold(this.getTitle());
+                this.foldedFrom = titleStart[this.slot];
+                this.foldedCompactions = compactions;
+            }
+
+            return this.folded;
+        }
+
+        @Override
+        public String getVideoId() {
+            return decode(idStart[this.slot], idEnd[this.slot]);
+        }
+
+        @Override
+        public List<String> getTags() {
+            return dictionary.names(this.getTagIds());
+        }
+
+        @Override
+        int[] getTagIds() {
+            return Arrays.copyOfRange(tagPool, tagStart[this.slot], tagEnd[this.slot]);
+        }
+
+        @Override
+        public boolean hasTag(int key) {
+            for (int i = tagStart[this.slot]; i < tagEnd[this.slot]; i++) {
+                if (dictionary.key(tagPool[i]) == key)
+                    return true;
+            }
+
+            return false;
+        }
+
+        @Override
+        public boolean isFlagged() {
+            return flagged.get(this.slot);
+        }
+
+        @Override
+        public String getFlag() {
+            return reasons.get(this.slot);
+        }
+
+        @Override
+        public void flag(String reason) {
+            flagged.set(this.slot);
+            reasons.put(this.slot, Objects.requireNonNullElse(reason, "Not supplied"));
+        }
+
+        @Override
+        public void unflag() {
+            flagged.clear(this.slot);
+            reasons.remove(this.slot);
+        }
+
+        @Override
+        Video detach() {
+            final Video copy = new Video(
+                this.getTitle(),
+                this.getVideoId(),
+                this.getTagIds(),
+                dictionary
+            );
+            if (this.isFlagged())
+                copy.flag(this.getFlag());
+            return copy;
+        }
+    }
+}
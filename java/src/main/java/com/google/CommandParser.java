@@ -62,7 +62,13 @@ public class CommandParser {
                 break;
             case "ADD_TO_PLAYLIST":
                 try {
-                    this.player.addVideoToPlaylist(input.get(1), input.get(2));
+                    if (input.size() > 3) {
+                        this.player.addVideosToPlaylist(
+                            input.get(1),
+                            input.subList(2, input.size())
+                        );
+                    } else
+                        this.player.addVideoToPlaylist(input.get(1), input.get(2));
                 } catch (ArrayIndexOutOfBoundsException e) {
                     System.out.println(
                         "Please enter ADD_TO_PLAYLIST command followed by a " +
@@ -70,6 +76,16 @@ public class CommandParser {
                     );
                 }
                 break;
+            case "IMPORT_PLAYLIST":
+                try {
+                    this.player.importPlaylist(input.get(1), input.get(2));
+                } catch (ArrayIndexOutOfBoundsException e) {
+                    System.out.println(
+                        "Please enter IMPORT_PLAYLIST command followed by a " +
+                        "playlist name and the file listing video_ids to add"
+                    );
+                }
+                break;
             case "REMOVE_FROM_PLAYLIST":
                 try {
                     this.player.removeFromPlaylist(input.get(1), input.get(2));
@@ -98,6 +114,16 @@ public class CommandParser {
                     );
                 }
                 break;
+            case "CLONE_PLAYLIST":
+                try {
+                    this.player.clonePlaylist(input.get(1), input.get(2));
+                } catch (ArrayIndexOutOfBoundsException e) {
+                    System.out.println(
+                        "Please enter CLONE_PLAYLIST command followed by the names of the " +
+                        "playlist to clone and its copy"
+                    );
+                }
+                break;
             case "SHOW_PLAYLIST":
                 try {
                     this.player.showPlaylist(input.get(1));
@@ -110,24 +136,58 @@ public class CommandParser {
             case "SHOW_ALL_PLAYLISTS":
                 this.player.showAllPlaylists();
                 break;
-            case "SEARCH_VIDEOS":
+            case "SHOW_PLAYLISTS_FOR":
                 try {
-                    this.player.searchVideos(input.get(1));
+                    this.player.showPlaylistsFor(input.get(1));
                 } catch (ArrayIndexOutOfBoundsException e) {
                     System.out.println(
-                        "Please enter SEARCH_VIDEOS command followed by a search term"
+                        "Please enter SHOW_PLAYLISTS_FOR command followed by video_id"
+                    );
+                }
+                break;
+            case "SEARCH_VIDEOS":
+                try {
+                    if (input.size() > 2)
+                        this.search(input, false);
+                    else
+                        this.player.searchVideos(input.get(1));
+                } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+                    System.out.println(
+                        "Please enter SEARCH_VIDEOS command followed by a search term and an " +
+                        "optional LIMIT n, OFFSET m or AFTER token"
                     );
                 }
                 break;
             case "SEARCH_VIDEOS_WITH_TAG":
                 try {
-                    this.player.searchVideosWithTag(input.get(1));
-                } catch (ArrayIndexOutOfBoundsException e) {
+                    if (input.size() > 2)
+                        this.search(input, true);
+                    else
+                        this.player.searchVideosWithTag(input.get(1));
+                } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
                     System.out.println(
-                        "Please enter SEARCH_VIDEOS_WITH_TAG command followed by a video tag"
+                        "Please enter SEARCH_VIDEOS_WITH_TAG command followed by a video tag " +
+                        "(or tags joined by AND, OR and NOT) and an optional LIMIT n, OFFSET m " +
+                        "or AFTER token"
                     );
                 }
                 break;
+            case "SUGGEST":
+                try {
+                    this.player.suggest(
+                        input.get(1),
+                        input.size() > 2 ? Integer.parseInt(input.get(2)) : 5
+                    );
+                } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+                    System.out.println(
+                        "Please enter SUGGEST command followed by a prefix and an optional " +
+                        "number of suggestions"
+                    );
+                }
+                break;
+            case "SEARCH_STATS":
+                this.player.showSearchStats();
+                break;
             case "FLAG_VIDEO":
                 try {
                     this.player.flagVideo(input.get(1), input.get(2));
@@ -149,6 +209,9 @@ public class CommandParser {
                     System.out.println("Please enter ALLOW_VIDEO command followed by a video_id");
                 }
                 break;
+            case "SHOW_FLAGGED":
+                this.player.showFlaggedVideos();
+                break;
             case "HELP":
                 this.getHelp();
                 break;
@@ -160,6 +223,56 @@ public class CommandParser {
         }
     }
 
+    /**
+     * Executes a search, reading the LIMIT, OFFSET and AFTER clauses following the term. A tag
+     * search may instead be followed by further words of a tag query, before any clause. The
+     * page size defaults to 10 if only OFFSET or AFTER is given.
+     */
+    private void search(List<String> input, boolean byTag) {
+        int i = 2;
+        if (byTag) {
+            while (i < input.size() && !isSearchClause(input.get(i)))
+                i++;
+        }
+        final String term = String.join(" ", input.subList(1, i));
+        if (i == input.size()) {
+            this.player.searchVideosWithTag(term);
+            return;
+        }
+
+        int limit = 10, offset = 0;
+        String after = null;
+        for (; i < input.size(); i += 2) {
+            final String value = input.get(i + 1);
+            switch (input.get(i).toUpperCase()) {
+                case "LIMIT":
+                    limit = Integer.parseInt(value);
+                    break;
+                case "OFFSET":
+                    offset = Integer.parseInt(value);
+                    break;
+                case "AFTER":
+                    after = value;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown search clause: " + input.get(i));
+            }
+        }
+        if (limit < 1 || offset < 0)
+            throw new IllegalArgumentException("LIMIT must be positive and OFFSET non-negative");
+
+        if (byTag)
+            this.player.searchVideosWithTag(term, limit, offset, after);
+        else
+            this.player.searchVideos(term, limit, offset, after);
+    }
+
+    /** Determines whether a word opens a LIMIT, OFFSET or AFTER clause of a search. */
+    private static boolean isSearchClause(String word) {
+        final String upper = word.toUpperCase();
+        return upper.equals("LIMIT") || upper.equals("OFFSET") || upper.equals("AFTER");
+    }
+
     /**
      * Displays all available commands to the user.
      */
@@ -176,20 +289,31 @@ public class CommandParser {
             "\tSHOW_PLAYING - Displays the title, URL and paused status of the current video.\n" +
             "\tCREATE_PLAYLIST <playlist_name> - Creates a new (empty) playlist with the " +
                 "provided name.\n" +
-            "\tADD_TO_PLAYLIST <playlist_name> <video_id> - Adds a specified video to the named " +
-                "playlist.\n" +
+            "\tADD_TO_PLAYLIST <playlist_name> <video_id> [<video_id> ...] - Adds the specified " +
+                "videos to the named playlist.\n" +
+            "\tIMPORT_PLAYLIST <playlist_name> <file> - Adds the videos listed (by ID) in a file " +
+                "to the named playlist, creating it if need be.\n" +
             "\tREMOVE_FROM_PLAYLIST <playlist_name> <video_id> - Removes a specified video from " +
                 "the named playlist.\n" +
             "\tCLEAR_PLAYLIST <playlist_name> - Removes all videos from the named playlist.\n" +
             "\tDELETE_PLAYLIST <playlist_name> - Deletes the named playlist.\n" +
+            "\tCLONE_PLAYLIST <playlist_name> <new_playlist_name> - Creates a new playlist " +
+                "holding the same videos as the named playlist.\n" +
             "\tSHOW_PLAYLIST <playlist_name> - Lists all videos in the named playlist.\n" +
             "\tSHOW_ALL_PLAYLISTS - Displays all available playlists.\n" +
-            "\tSEARCH_VIDEOS <search_term> - Displays all videos whose titles contain the " +
-                "provided term.\n" +
-            "\tSEARCH_VIDEOS_WITH_TAG <tag_name> - Displays all videos whose tags contains the " +
-                "provided tag.\n" +
+            "\tSHOW_PLAYLISTS_FOR <video_id> - Lists all playlists containing the specified " +
+                "video.\n" +
+            "\tSEARCH_VIDEOS <search_term> [LIMIT n] [OFFSET m] [AFTER token] - Displays all " +
+                "videos whose titles contain the provided term, or a page of them.\n" +
+            "\tSEARCH_VIDEOS_WITH_TAG <tag_name> [LIMIT n] [OFFSET m] [AFTER token] - Displays " +
+                "all videos whose tags contains the provided tag, or a page of them. Tags may " +
+                "be combined with AND, OR and NOT, e.g. #cat AND #animal NOT #dog.\n" +
+            "\tSUGGEST <prefix> [n] - Displays up to n (default 5) titles or tags starting with " +
+                "the provided prefix.\n" +
+            "\tSEARCH_STATS - Displays the hit and miss counts of the search result cache.\n" +
             "\tFLAG_VIDEO <video_id> <flag_reason> - Marks a specified video as flagged.\n" +
             "\tALLOW_VIDEO <video_id> - Removes the flag from a specified video.\n" +
+            "\tSHOW_FLAGGED - Lists all flagged videos along with their reasons.\n" +
             "\tHELP - Displays help information.\n" +
             "\tEXIT - Terminates the program."
         );
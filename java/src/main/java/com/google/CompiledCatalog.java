@@ -0,0 +1,203 @@
+package com.google;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/** The class used to read a binary catalog snapshot compiled by {@link CatalogCompiler}. The
+ * snapshot is memory-mapped and each {@link Video} is only decoded once requested.
+ *
+ * <p>Opening a snapshot never reads the text catalog: it is taken as current if the catalog's size
+ * and modification time match those recorded when it was compiled. The snapshot itself is read
+ * through once, to verify the checksum in its trailer, so a corrupt one is never served.
+ *
+ * <p>Layout (big-endian, lengths as unsigned varints):
+ * <pre>
+ *   header   magic, version, source length, source modification time (ms), video count,
+ *            tag count, records offset, table offset, table capacity
+ *   tags     length-prefixed UTF-8 strings, indexed by position
+ *   records  length-prefixed title, length-prefixed ID, tag count, tag indexes
+ *   table    open-addressed ID hash table of record offsets (0 marks an empty slot)
+ *   trailer  CRC32 of every preceding byte
+ * </pre>
+ */
+final class CompiledCatalog {
+    static final int MAGIC = 0x56434154;                // "VCAT"
+    static final int VERSION = 3;
+    static final int HEADER_SIZE = 44;
+
+    private final ByteBuffer buffer;
+    private final TagDictionary dictionary;
+    private final int[] tags;                           // Snapshot tag index -> tag ID
+    private final int count;
+    private final int recordsOffset;
+    private final int tableOffset;
+    private final int mask;
+
+    private CompiledCatalog(ByteBuffer buffer, TagDictionary dictionary) {
+        this.buffer = buffer;
+        this.dictionary = dictionary;
+        this.count = buffer.getInt(24);
+        this.recordsOffset = buffer.getInt(32);
+        this.tableOffset = buffer.getInt(36);
+        this.mask = buffer.getInt(40) - 1;
+
+        final ByteBuffer in = this.cursor(HEADER_SIZE);
+        this.tags = new int[buffer.getInt(28)];
+        for (int i = 0; i < this.tags.length; i++)
+            this.tags[i] = dictionary.intern(readString(in));
+    }
+
+    /** Opens the snapshot at a given path, returning null if it is missing, of another format
+     * version, out of date with respect to the text catalog it was compiled from, or corrupt by
+     * its checksum. Tags are interned into the given dictionary. */
+    static CompiledCatalog open(
+        Path snapshot,
+        Path source,
+        TagDictionary dictionary
+    ) throws IOException {
+        if (!Files.isRegularFile(snapshot))
+            return null;
+
+        final MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE + 4 || channel.size() > Integer.MAX_VALUE)
+                return null;
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION)
+            return null;
+        if (Files.isRegularFile(source)) {
+            if (buffer.getLong(8) != Files.size(source)
+                    || buffer.getLong(16) != Files.getLastModifiedTime(source).toMillis())
+                return null;
+        }
+        if (!isIntact(buffer))
+            return null;
+
+        return new CompiledCatalog(buffer, dictionary);
+    }
+
+    /** Determines whether a snapshot's contents match the checksum in its trailer. */
+    private static boolean isIntact(ByteBuffer buffer) {
+        if (buffer.capacity() < HEADER_SIZE + 4)
+            return false;
+
+        final int trailer = buffer.capacity() - 4;
+        final CRC32 crc = new CRC32();
+        crc.update(buffer.duplicate().position(0).limit(trailer));
+        return (int) crc.getValue() == buffer.getInt(trailer);
+    }
+
+    /** Rethrows a failure to decode a record as an {@link UncheckedIOException} if the snapshot
+     * has been corrupted since it was opened, or as is (a bug) otherwise. */
+    private RuntimeException corrupt(RuntimeException e) {
+        if (isIntact(this.buffer))
+            return e;
+
+        return new UncheckedIOException(new IOException("Catalog snapshot is corrupt", e));
+    }
+
+    /** Returns the number of videos in the snapshot. */
+    int size() {
+        return this.count;
+    }
+
+    /** Decodes the video with a given ID by probing the hash table; returns null if not found.
+     * Throws {@link UncheckedIOException} if the snapshot turns out to be corrupt. */
+    Video find(String id) {
+        final byte[] key = id.getBytes(StandardCharsets.UTF_8);
+        int slot = spread(id.hashCode()) & this.mask;
+        try {
+            while (true) {
+                final int record = this.buffer.getInt(this.tableOffset + slot * 4);
+                if (record == 0)
+                    return null;
+                if (this.idEquals(record, key))
+                    return this.decode(this.cursor(record));
+                slot = (slot + 1) & this.mask;
+            }
+        } catch (RuntimeException e) {
+            throw this.corrupt(e);
+        }
+    }
+
+    /** Decodes each video in the snapshot, in the order they were compiled. Throws
+     * {@link UncheckedIOException} if the snapshot turns out to be corrupt, once the videos
+     * before the first undecodable record have been passed to the action. */
+    void forEach(Consumer<Video> action) {
+        final ByteBuffer in = this.cursor(this.recordsOffset);
+        for (int i = 0; i < this.count; i++) {
+            final Video vid;
+            try {
+                vid = this.decode(in);
+            } catch (RuntimeException e) {
+                throw this.corrupt(e);
+            }
+            action.accept(vid);
+        }
+    }
+
+    /** Compares the (undecoded) ID of the record at a given offset against a UTF-8 key. */
+    private boolean idEquals(int record, byte[] key) {
+        final ByteBuffer in = this.cursor(record);
+        final int titleLength = readVarint(in);
+        in.position(in.position() + titleLength);
+        if (readVarint(in) != key.length)
+            return false;
+        for (byte b : key) {
+            if (in.get() != b)
+                return false;
+        }
+
+        return true;
+    }
+
+    /** Decodes the record at the cursor's position, advancing past it. */
+    private Video decode(ByteBuffer in) {
+        final String title = readString(in),
+                        id = readString(in);
+        final int n = readVarint(in);
+        final int[] tags = n == 0 ? TagDictionary.NONE : new int[n];
+        for (int i = 0; i < n; i++)
+            tags[i] = this.tags[readVarint(in)];
+
+        return new Video(title, id, tags, this.dictionary);
+    }
+
+    private ByteBuffer cursor(int position) {
+        return this.buffer.duplicate().position(position);
+    }
+
+    /** Mixes the high bits of a hash into the low bits used to pick a table slot. */
+    static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    static int readVarint(ByteBuffer in) {
+        int value = 0, shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+
+        return value;
+    }
+
+    private static String readString(ByteBuffer in) {
+        final byte[] bytes = new byte[readVarint(in)];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
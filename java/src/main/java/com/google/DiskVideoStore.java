@@ -0,0 +1,319 @@
+package com.google;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/** The class used to store videos in a data file rather than on the heap. Only a sorted index
+ * of IDs to record offsets is held in memory; records are decoded lazily and kept in a bounded
+ * LRU cache, so memory use is capped by the cache size rather than by the catalog's.
+ *
+ * <p>A video evicted from the cache stays canonical for as long as something else (e.g. a
+ * playlist) still references it, and a flagged video is never dropped, so flags survive
+ * eviction. The data file is append-only; rewritten records leave their old bytes unused.
+ */
+final class DiskVideoStore implements VideoStore {
+    private static final int WRITE_BUFFER = 1 << 16;
+
+    private final FileChannel channel;
+    private final ByteArrayOutputStream writes;         // Appended records not yet written out
+    private long flushed = 0;                           // Size of the data file on disk
+
+    private String[] ids = new String[0];               // Sorted IDs...
+    private long[] offsets = new long[0];               // ...and their offsets (-1 if removed)
+    private int indexed = 0;
+    private final HashMap<String, Long> recent;         // IDs added since the last merge
+    private int size = 0;
+
+    private final LinkedHashMap<String, Video> cache;   // Most recently used, in access order
+    private final HashMap<String, Ref> live;            // Decoded videos still referenced
+    private final ReferenceQueue<Video> collected;
+    private final HashMap<String, Video> pinned;        // Flagged videos evicted from the cache
+    private TagDictionary dictionary = null;            // Taken from the first video stored
+
+    DiskVideoStore(Path file, int capacity) throws IOException {
+        this.channel = FileChannel.open(
+            file,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING
+        );
+        this.writes = new ByteArrayOutputStream(WRITE_BUFFER);
+        this.recent = new HashMap<>();
+        this.live = new HashMap<>();
+        this.collected = new ReferenceQueue<>();
+        this.pinned = new HashMap<>();
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Video> eldest) {
+                if (this.size() <= capacity)
+                    return false;
+                if (eldest.getValue().isFlagged())
+                    DiskVideoStore.this.pinned.put(eldest.getKey(), eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    /** Returns a store backed by the data file named by the {@code videos.store.file} property
+     * (a temporary file by default), caching up to {@code videos.store.cache} videos. */
+    static DiskVideoStore fromConfig() {
+        try {
+            final String path = System.getProperty("videos.store.file");
+            final Path file;
+            if (path != null && !path.isBlank())
+                file = Paths.get(path);
+            else {
+                file = Files.createTempFile("videos", ".dat");
+                file.toFile().deleteOnExit();
+            }
+
+            return new DiskVideoStore(file, Integer.getInteger("videos.store.cache", 10_000));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public Video get(String id) {
+        Video vid = this.cache.get(id);
+        if (vid != null)
+            return vid;
+
+        this.expunge();
+        final Ref ref = this.live.get(id);
+        vid = ref != null ? ref.get() : this.pinned.get(id);
+        if (vid == null) {
+            final long offset = this.offsetOf(id);
+            if (offset < 0)
+                return null;
+            vid = this.read(offset);
+            this.live.put(id, new Ref(vid, this.collected));
+        }
+        this.cache.put(id, vid);
+        return vid;
+    }
+
+    @Override
+    public void put(Video vid) {
+        if (this.dictionary == null)
+            this.dictionary = vid.getTagDictionary();
+
+        final String id = vid.getVideoId();
+        if (this.offsetOf(id) < 0)
+            this.size++;
+        this.index(id, this.append(vid));
+
+        this.pinned.remove(id);
+        this.live.put(id, new Ref(vid, this.collected));
+        this.cache.put(id, vid);
+    }
+
+    @Override
+    public void update(Video source) {
+        final String id = source.getVideoId();
+        if (this.offsetOf(id) < 0)
+            return;
+
+        this.index(id, this.append(source));
+        final Ref ref = this.live.get(id);
+        Video vid = ref != null ? ref.get() : null;
+        if (vid == null)
+            vid = this.pinned.get(id);
+        if (vid != null)
+            vid.update(source);
+    }
+
+    @Override
+    public boolean remove(String id) {
+        boolean removed = this.recent.remove(id) != null;
+        final int i = Arrays.binarySearch(this.ids, 0, this.indexed, id);
+        if (i >= 0 && this.offsets[i] >= 0) {
+            this.offsets[i] = -1;
+            removed = true;
+        }
+        if (!removed)
+            return false;
+
+        this.size--;
+        this.cache.remove(id);
+        this.live.remove(id);
+        this.pinned.remove(id);
+        return true;
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    @Override
+    public void forEach(Consumer<? super Video> action) {
+        for (int i = 0; i < this.indexed; i++) {
+            if (this.offsets[i] >= 0 && !this.recent.containsKey(this.ids[i]))
+                action.accept(this.get(this.ids[i]));
+        }
+        for (String id : this.recent.keySet().toArray(new String[0]))
+            action.accept(this.get(id));
+    }
+
+    /** Returns the offset of an ID's record, or -1 if not found. */
+    private long offsetOf(String id) {
+        final Long offset = this.recent.get(id);
+        if (offset != null)
+            return offset;
+
+        final int i = Arrays.binarySearch(this.ids, 0, this.indexed, id);
+        return i >= 0 ? this.offsets[i] : -1;
+    }
+
+    /** Points an ID at a record. New IDs collect in an unsorted delta which is merged into the
+     * sorted index once it outgrows an eighth of it, keeping insertion amortised O(log n). */
+    private void index(String id, long offset) {
+        final int i = Arrays.binarySearch(this.ids, 0, this.indexed, id);
+        if (i >= 0 && !this.recent.containsKey(id)) {
+            this.offsets[i] = offset;
+            return;
+        }
+
+        this.recent.put(id, offset);
+        if (this.recent.size() > Math.max(1024, this.indexed / 8))
+            this.merge();
+    }
+
+    /** Merges the delta into the sorted index, dropping removed IDs. */
+    private void merge() {
+        final String[] added = this.recent.keySet().toArray(new String[0]);
+        Arrays.sort(added);
+        final String[] ids = new String[this.indexed + added.length];
+        final long[] offsets = new long[ids.length];
+        int i = 0, j = 0, n = 0;
+        while (i < this.indexed || j < added.length) {
+            final int cmp = i == this.indexed ? 1
+                : j == added.length ? -1
+                : this.ids[i].compareTo(added[j]);
+            if (cmp < 0) {
+                if (this.offsets[i] >= 0) {
+                    ids[n] = this.ids[i];
+                    offsets[n++] = this.offsets[i];
+                }
+                i++;
+            } else {
+                if (cmp == 0)
+                    i++;                                // The delta supersedes the index
+                ids[n] = added[j];
+                offsets[n++] = this.recent.get(added[j++]);
+            }
+        }
+
+        this.ids = ids;
+        this.offsets = offsets;
+        this.indexed = n;
+        this.recent.clear();
+    }
+
+    /** Appends a video's record ({@code length, title, ID, tag IDs}), returning its offset. */
+    private long append(Video vid) {
+        final byte[] title = vid.getTitle().getBytes(StandardCharsets.UTF_8),
+                        id = vid.getVideoId().getBytes(StandardCharsets.UTF_8);
+        final int[] tags = vid.getTagIds();
+        final ByteBuffer record =
+            ByteBuffer.allocate(16 + title.length + id.length + tags.length * 4);
+        record.putInt(record.capacity() - 4)
+              .putInt(title.length).put(title)
+              .putInt(id.length).put(id)
+              .putInt(tags.length);
+        for (int tag : tags)
+            record.putInt(tag);
+
+        final long offset = this.flushed + this.writes.size();
+        this.writes.write(record.array(), 0, record.capacity());
+        if (this.writes.size() >= WRITE_BUFFER)
+            this.flush();
+        return offset;
+    }
+
+    /** Writes any buffered records out to the data file. */
+    private void flush() {
+        try {
+            final ByteBuffer pending = ByteBuffer.wrap(this.writes.toByteArray());
+            while (pending.hasRemaining())
+                this.flushed += this.channel.write(pending, this.flushed);
+            this.writes.reset();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Reads and decodes the record at a given offset. */
+    private Video read(long offset) {
+        if (offset >= this.flushed)
+            this.flush();
+
+        try {
+            final ByteBuffer length = ByteBuffer.allocate(4);
+            this.readFully(length, offset);
+            final ByteBuffer in = ByteBuffer.allocate(length.getInt(0));
+            this.readFully(in, offset + 4);
+            in.flip();
+
+            final String title = readString(in),
+                            id = readString(in);
+            final int n = in.getInt();
+            final int[] tags = n == 0 ? TagDictionary.NONE : new int[n];
+            for (int i = 0; i < n; i++)
+                tags[i] = in.getInt();
+
+            return new Video(title, id, tags, this.dictionary);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void readFully(ByteBuffer dst, long position) throws IOException {
+        while (dst.hasRemaining()) {
+            if (this.channel.read(dst, position + dst.position()) < 0)
+                throw new IOException("Unexpected end of video data file");
+        }
+    }
+
+    private static String readString(ByteBuffer in) {
+        final byte[] bytes = new byte[in.getInt()];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /** Drops the entries of videos which are no longer referenced anywhere. */
+    private void expunge() {
+        Ref ref;
+        while ((ref = (Ref) this.collected.poll()) != null) {
+            if (this.live.get(ref.id) == ref)
+                this.live.remove(ref.id);
+        }
+    }
+
+    /** The class used to weakly track a decoded video by ID. */
+    private static final class Ref extends WeakReference<Video> {
+        private final String id;
+
+        Ref(Video vid, ReferenceQueue<Video> queue) {
+            super(vid, queue);
+            this.id = vid.getVideoId();
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package com.google;
+
+import java.util.Arrays;
+
+/** The class used to hold a map as a persistent hash array mapped trie. Each node branches on 5
+ * bits of a key's hash, keeping only the branches present (flagged in a bitmap) in a packed array
+ * of key/value pairs, where a null key marks a pair holding a sub-node. Keys whose hashes are
+ * identical share a collision node, searched linearly.
+ *
+ * <p>As with {@link SlotTrie}, {@link #fork()} shares the whole trie with a copy in O(1), nodes
+ * owned by a trie are edited in place, and any other node along the path an edit touches is
+ * copied, so forked maps share every node neither has changed since. */
+final class HashTrie<K, V> {
+    private static final int BITS = 5, MASK = (1 << BITS) - 1;
+
+    private Object owner = new Object();                // Stamps the nodes editable in place
+    private Node root = null;
+    private int size = 0;
+    private Object previous;                            // Value replaced or removed by an edit
+
+    /** Returns a map holding the same entries, sharing this one's nodes until either changes. */
+    HashTrie<K, V> fork() {
+        final HashTrie<K, V> copy = new HashTrie<>();
+        copy.root = this.root;
+        copy.size = this.size;
+        this.owner = new Object();
+        return copy;
+    }
+
+    /** Returns the value mapped to a key; null if absent. */
+    @SuppressWarnings("unchecked")
+    V get(Object key) {
+        final int hash = key.hashCode();
+        Node node = this.root;
+        for (int shift = 0; node != null; shift += BITS) {
+            if (node.collision) {
+                for (int i = 0; i < node.array.length; i += 2) {
+                    if (key.equals(node.array[i]))
+                        return (V) node.array[i + 1];
+                }
+                return null;
+            }
+
+            final int bit = 1 << ((hash >>> shift) & MASK);
+            if ((node.bitmap & bit) == 0)
+                return null;
+
+            final int i = node.index(bit);
+            if (node.array[i] != null)
+                return key.equals(node.array[i]) ? (V) node.array[i + 1] : null;
+            node = (Node) node.array[i + 1];
+        }
+
+        return null;
+    }
+
+    /** Maps a key to a value, returning the value it replaced; null if the key was absent. */
+    @SuppressWarnings("unchecked")
+    V put(K key, V value) {
+        this.previous = null;
+        final int hash = key.hashCode();
+        if (this.root == null) {
+            this.root = new Node(this.owner, 1 << (hash & MASK), new Object[] {key, value});
+            this.size++;
+        } else
+            this.root = this.put(this.root, 0, hash, key, value);
+
+        return (V) this.previous;
+    }
+
+    private Node put(Node node, int shift, int hash, K key, V value) {
+        if (node.collision) {
+            if (node.hash != hash) {
+                final Node branch = new Node(
+                    this.owner,
+                    1 << ((node.hash >>> shift) & MASK),
+                    new Object[] {null, node}
+                );
+                return this.put(branch, shift, hash, key, value);
+            }
+
+            final Node edited = this.editable(node);
+            for (int i = 0; i < node.array.length; i += 2) {
+                if (key.equals(node.array[i])) {
+                    this.previous = node.array[i + 1];
+                    edited.array[i + 1] = value;
+                    return edited;
+                }
+            }
+            final int n = node.array.length;
+            edited.array = Arrays.copyOf(node.array, n + 2);
+            edited.array[n] = key;
+            edited.array[n + 1] = value;
+            this.size++;
+            return edited;
+        }
+
+        final int bit = 1 << ((hash >>> shift) & MASK);
+        final int i = node.index(bit);
+        if ((node.bitmap & bit) == 0) {
+            final Node edited = this.editable(node);
+            final Object[] array = new Object[node.array.length + 2];
+            System.arraycopy(node.array, 0, array, 0, i);
+            array[i] = key;
+            array[i + 1] = value;
+            System.arraycopy(node.array, i, array, i + 2, node.array.length - i);
+            edited.array = array;
+            edited.bitmap |= bit;
+            this.size++;
+            return edited;
+        }
+
+        final Object existing = node.array[i];
+        final Node child;
+        if (existing == null) {
+            final Node sub = (Node) node.array[i + 1];
+            child = this.put(sub, shift + BITS, hash, key, value);
+            if (child == sub)
+                return node;
+        } else if (key.equals(existing)) {
+            this.previous = node.array[i + 1];
+            final Node edited = this.editable(node);
+            edited.array[i + 1] = value;
+            return edited;
+        } else {
+            child = this.merge(shift + BITS, existing, node.array[i + 1], key, value, hash);
+            this.size++;
+        }
+
+        final Node edited = this.editable(node);
+        edited.array[i] = null;
+        edited.array[i + 1] = child;
+        return edited;
+    }
+
+    /** Returns a node holding two entries whose hashes agree below a given shift. */
+    private Node merge(int shift, Object k1, Object v1, Object k2, Object v2, int h2) {
+        final int h1 = k1.hashCode();
+        if (h1 == h2) {
+            final Node node = new Node(this.owner, 0, new Object[] {k1, v1, k2, v2});
+            node.collision = true;
+            node.hash = h1;
+            return node;
+        }
+
+        final int f1 = (h1 >>> shift) & MASK, f2 = (h2 >>> shift) & MASK;
+        if (f1 == f2) {
+            final Node sub = this.merge(shift + BITS, k1, v1, k2, v2, h2);
+            return new Node(this.owner, 1 << f1, new Object[] {null, sub});
+        }
+
+        return new Node(
+            this.owner,
+            (1 << f1) | (1 << f2),
+            f1 < f2 ? new Object[] {k1, v1, k2, v2} : new Object[] {k2, v2, k1, v1}
+        );
+    }
+
+    /** Removes the mapping of a key, returning its value; null if the key was absent. */
+    @SuppressWarnings("unchecked")
+    V remove(Object key) {
+        this.previous = null;
+        if (this.root != null)
+            this.root = this.remove(this.root, 0, key.hashCode(), key);
+
+        return (V) this.previous;
+    }
+
+    /** Removes a key beneath a node, returning the node replacing it (null once empty). */
+    private Node remove(Node node, int shift, int hash, Object key) {
+        if (node.collision) {
+            for (int i = 0; i < node.array.length; i += 2) {
+                if (key.equals(node.array[i])) {
+                    this.found(node.array[i + 1]);
+                    return this.without(node, i, 0);
+                }
+            }
+            return node;
+        }
+
+        final int bit = 1 << ((hash >>> shift) & MASK);
+        if ((node.bitmap & bit) == 0)
+            return node;
+
+        final int i = node.index(bit);
+        final Object existing = node.array[i];
+        if (existing == null) {
+            final Node sub = (Node) node.array[i + 1];
+            final Node child = this.remove(sub, shift + BITS, hash, key);
+            if (child == sub)
+                return node;
+            if (child == null)
+                return this.without(node, i, bit);
+
+            final Node edited = this.editable(node);
+            edited.array[i + 1] = child;
+            return edited;
+        }
+        if (!key.equals(existing))
+            return node;
+
+        this.found(node.array[i + 1]);
+        return this.without(node, i, bit);
+    }
+
+    private void found(Object value) {
+        this.previous = value;
+        this.size--;
+    }
+
+    /** Returns a node without the pair at a given index (and its bitmap bit); null if none are
+     * left. */
+    private Node without(Node node, int i, int bit) {
+        if (node.array.length == 2)
+            return null;
+
+        final Node edited = this.editable(node);
+        final Object[] array = new Object[node.array.length - 2];
+        System.arraycopy(node.array, 0, array, 0, i);
+        System.arraycopy(node.array, i + 2, array, i, node.array.length - i - 2);
+        edited.array = array;
+        edited.bitmap &= ~bit;
+        return edited;
+    }
+
+    /** Returns the number of entries. */
+    int size() {
+        return this.size;
+    }
+
+    private Node editable(Node node) {
+        if (node.owner == this.owner)
+            return node;
+
+        final Node copy = new Node(this.owner, node.bitmap, node.array.clone());
+        copy.collision = node.collision;
+        copy.hash = node.hash;
+        return copy;
+    }
+
+    /** A node of the trie. */
+    private static final class Node {
+        private final Object owner;
+        private int bitmap;                             // Branches present
+        private Object[] array;                         // Key/value or null/sub-node pairs
+        private boolean collision = false;              // Whether every key shares one hash
+        private int hash;                               // The shared hash of a collision node
+
+        Node(Object owner, int bitmap, Object[] array) {
+            this.owner = owner;
+            this.bitmap = bitmap;
+            this.array = array;
+        }
+
+        /** Returns the array index of the pair for a branch. */
+        int index(int bit) {
+            return 2 * Integer.bitCount(this.bitmap & (bit - 1));
+        }
+    }
+}
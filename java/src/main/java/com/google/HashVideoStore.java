@@ -0,0 +1,39 @@
+package com.google;
+
+import java.util.HashMap;
+import java.util.function.Consumer;
+
+/** The class used to store each video as its own {@link Video} object in a hash map. */
+final class HashVideoStore implements VideoStore {
+    private final HashMap<String, Video> videos = new HashMap<>();
+
+    @Override
+    public Video get(String id) {
+        return this.videos.get(id);
+    }
+
+    @Override
+    public void put(Video vid) {
+        this.videos.put(vid.getVideoId(), vid);
+    }
+
+    @Override
+    public void update(Video source) {
+        this.videos.get(source.getVideoId()).update(source);
+    }
+
+    @Override
+    public boolean remove(String id) {
+        return this.videos.remove(id) != null;
+    }
+
+    @Override
+    public int size() {
+        return this.videos.size();
+    }
+
+    @Override
+    public void forEach(Consumer<? super Video> action) {
+        this.videos.values().forEach(action);
+    }
+}
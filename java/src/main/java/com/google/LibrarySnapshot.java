@@ -0,0 +1,50 @@
+package com.google;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/** The class used to represent an immutable view of the videos in a {@link VideoLibrary} at a
+ * given version. A snapshot is shared by every caller until the catalog next changes, so reading
+ * it costs no copying. Flags aren't part of the catalog version and are read live from each
+ * {@link Video}. */
+public final class LibrarySnapshot implements Iterable<Video> {
+    private final long version;
+    private final List<Video> videos;                   // Sorted by title
+
+    LibrarySnapshot(long version, List<Video> videos) {
+        this.version = version;
+        this.videos = Collections.unmodifiableList(videos);
+    }
+
+    /** Returns the catalog version the snapshot was taken at. */
+    public long getVersion() {
+        return this.version;
+    }
+
+    /** Returns the number of videos in the snapshot. */
+    public int size() {
+        return this.videos.size();
+    }
+
+    /** Determines whether the snapshot holds no videos. */
+    public boolean isEmpty() {
+        return this.videos.isEmpty();
+    }
+
+    /** Returns a read-only collection of the snapshot's videos. */
+    public List<Video> getVideos() {
+        return this.videos;
+    }
+
+    /** Returns a read-only collection of the snapshot's videos sorted by title (natural order).
+     * The order is established once, when the snapshot is taken. */
+    public List<Video> byTitle() {
+        return this.videos;
+    }
+
+    @Override
+    public Iterator<Video> iterator() {
+        return this.videos.iterator();
+    }
+}
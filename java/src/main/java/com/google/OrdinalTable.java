@@ -0,0 +1,204 @@
+package com.google;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
+
+/** The class used to number each video of a library with a dense ordinal, so the library's live
+ * and flagged videos can be held as {@link RoaringBitmap}s. Flagging then sets one bit rather than
+ * withdrawing the video from every index, and flagged videos are excluded from results and
+ * samples with bitmap operations instead of asking each video in turn. An ID keeps its ordinal if
+ * it leaves the catalog and later returns.
+ *
+ * <p>Only each ordinal's ID and title are held: videos are resolved through the library's
+ * {@link VideoStore} when needed, so the indexes built over ordinals don't keep every video of a
+ * store which decodes them on demand in memory. {@link #titleOrder()} orders ordinals by the
+ * titles held here for those indexes, so comparing two never reads the store. As this table is
+ * the first index a diff updates, and a diff removes a video from every index before changing it
+ * and adds it back after, each ordinal compares by the title the other indexes placed it by. */
+final class OrdinalTable implements VideoIndex {
+    private static final int PROBE = -1;                // Stands for the probe in comparisons
+
+    private final VideoStore store;
+    private final HashMap<String, Integer> ordinals = new HashMap<>();
+    private final List<String> ids = new ArrayList<>();         // Ordinal -> ID, kept once gone
+    private final List<String> titles = new ArrayList<>();      // Ordinal -> title last added
+    private final RoaringBitmap live = new RoaringBitmap();
+    private final RoaringBitmap flagged = new RoaringBitmap();  // Always a subset of live
+    private final Comparator<Integer> titleOrder =
+        Comparator.comparing(this::title).thenComparing(this::id);
+    private Video probe = null;                         // Compared in place of PROBE
+
+    /** Creates an empty table resolving ordinals through a store. */
+    OrdinalTable(VideoStore store) {
+        this.store = store;
+    }
+
+    /** Numbers a video (if not already) and marks it live, and flagged if it is. */
+    @Override
+    public void add(Video vid) {
+        Integer ordinal = this.ordinals.get(vid.getVideoId());
+        if (ordinal == null) {
+            ordinal = this.ids.size();
+            this.ordinals.put(vid.getVideoId(), ordinal);
+            this.ids.add(vid.getVideoId());
+            this.titles.add(vid.getTitle());
+        } else
+            this.titles.set(ordinal, vid.getTitle());
+
+        vid.setOrdinal(ordinal);
+        this.live.add(ordinal);
+        if (vid.isFlagged())
+            this.flagged.add(ordinal);
+    }
+
+    @Override
+    public void remove(Video vid) {
+        final Integer ordinal = this.ordinals.get(vid.getVideoId());
+        if (ordinal != null) {
+            this.live.remove(ordinal);
+            this.flagged.remove(ordinal);
+        }
+    }
+
+    /** Returns the ordinal of a numbered video. */
+    int ordinalOf(Video vid) {
+        return this.ordinals.get(vid.getVideoId());
+    }
+
+    /** Returns the video numbered with a given ordinal, as currently held by the store. */
+    Video video(int ordinal) {
+        if (ordinal == PROBE)
+            return this.probe;
+
+        final Video vid = this.store.get(this.ids.get(ordinal));
+        vid.setOrdinal(ordinal);
+        return vid;
+    }
+
+    /** Returns the videos numbered with a collection of ordinals, keeping their order. */
+    List<Video> videos(Collection<Integer> ordinals) {
+        final List<Video> vl = new ArrayList<>(ordinals.size());
+        for (int ordinal : ordinals)
+            vl.add(this.video(ordinal));
+
+        return vl;
+    }
+
+    /** Returns the title held for an ordinal (or the probe's), as last added. */
+    String title(int ordinal) {
+        return ordinal == PROBE ? this.probe.getTitle() : this.titles.get(ordinal);
+    }
+
+    /** Returns the ID numbered with an ordinal (or the probe's). */
+    private String id(int ordinal) {
+        return ordinal == PROBE ? this.probe.getVideoId() : this.ids.get(ordinal);
+    }
+
+    /** Returns an ordinal standing for a video which needn't be numbered (nor stored) in
+     * comparisons by {@link #titleOrder()}, e.g. to seek to its place in an index. It is valid
+     * until the next probe is made. */
+    int probe(Video vid) {
+        this.probe = vid;
+        return PROBE;
+    }
+
+    /** Returns the order of ordinals by their videos' titles, then IDs. */
+    Comparator<Integer> titleOrder() {
+        return this.titleOrder;
+    }
+
+    /** Records a video's change of flag. */
+    void setFlagged(Video vid, boolean flagged) {
+        final Integer ordinal = this.ordinals.get(vid.getVideoId());
+        if (ordinal == null || !this.live.contains(ordinal))
+            return;
+
+        if (flagged)
+            this.flagged.add(ordinal);
+        else
+            this.flagged.remove(ordinal);
+    }
+
+    /** Determines whether a numbered video is flagged, looking its ordinal up by ID if it was
+     * handed out by the store rather than resolved here. */
+    boolean isFlagged(Video vid) {
+        return this.isFlagged(vid.getOrdinal() >= 0 ? vid.getOrdinal() : this.ordinalOf(vid));
+    }
+
+    /** Determines whether the video with a given ordinal is flagged. */
+    boolean isFlagged(int ordinal) {
+        return this.flagged.contains(ordinal);
+    }
+
+    /** Returns the videos of a collection which aren't flagged, keeping their order. */
+    List<Video> withoutFlagged(Collection<Video> videos) {
+        if (this.flagged.isEmpty())
+            return new ArrayList<>(videos);
+
+        final List<Video> vl = new ArrayList<>(videos.size());
+        for (Video vid : videos) {
+            if (!this.isFlagged(vid))
+                vl.add(vid);
+        }
+
+        return vl;
+    }
+
+    /** Returns the videos numbered with a collection of ordinals which aren't flagged, keeping
+     * their order. */
+    List<Video> unflagged(Collection<Integer> ordinals) {
+        final List<Video> vl = new ArrayList<>(ordinals.size());
+        for (int ordinal : ordinals) {
+            if (!this.flagged.contains(ordinal))
+                vl.add(this.video(ordinal));
+        }
+
+        return vl;
+    }
+
+    /** Returns the flagged videos, in ordinal order. */
+    List<Video> flagged() {
+        final List<Video> vl = new ArrayList<>(this.flagged.cardinality());
+        this.flagged.forEach(ordinal -> vl.add(this.video(ordinal)));
+        return vl;
+    }
+
+    /** Returns an unflagged video chosen uniformly at random; null if there are none. The
+     * {@code k}th unflagged ordinal is found by binary search over the live ranks, counting the
+     * flagged ordinals below each with {@link RoaringBitmap#rank(int)}, so neither bitmap is
+     * copied. */
+    Video sample(Random random) {
+        final int live = this.live.cardinality();
+        final int available = live - this.flagged.cardinality();
+        if (available == 0)
+            return null;
+
+        final int k = random.nextInt(available);
+        int lo = k, hi = live - 1;                      // Live rank of the kth unflagged ordinal
+        while (lo < hi) {
+            final int mid = (lo + hi) >>> 1;
+            final int unflagged = mid + 1 - this.flagged.rank(this.live.select(mid) + 1);
+            if (unflagged > k)
+                hi = mid;
+            else
+                lo = mid + 1;
+        }
+
+        return this.video(this.live.select(lo));
+    }
+
+    /** Passes each live video to an action, in ordinal order. */
+    void forEach(Consumer<? super Video> action) {
+        this.live.forEach(ordinal -> action.accept(this.video(ordinal)));
+    }
+
+    /** Returns the number of live videos. */
+    int size() {
+        return this.live.cardinality();
+    }
+}
@@ -0,0 +1,379 @@
+package com.google;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+/** The class used to make a player's playlists and flags outlive the process. Each change is
+ * appended to a write-ahead log as the command which made it, framed by its length and CRC32
+ * checksum, and is durable once {@link #append(String...)} returns. Appends are group committed:
+ * a background thread writes whatever records have accumulated since its last sync and forces
+ * them to disk together, so changes arriving concurrently (or appended as a batch) share a single
+ * sync.
+ *
+ * <p>On opening, and at the first {@link #checkpoint()} after every
+ * {@code videos.state.snapshot} records (default 1000), the log is compacted: a new generation of
+ * it is started, the commands recreating the player's whole state are written to a snapshot
+ * (atomically replacing the last) and older generations are deleted. Changes are therefore
+ * appended before they are made, and checkpointed only once made.
+ * Recovery replays the snapshot and then every later generation, each up to its first torn or
+ * corrupt record, which only a crash part-way through an append leaves behind.
+ *
+ * <pre>
+ *   log       journal.&lt;generation&gt;.wal: records
+ *   snapshot  journal.snap: magic, version, first generation to replay, records, CRC32 of every
+ *             preceding byte
+ *   record    payload length, payload CRC32, payload (field count, then each field as UTF)
+ * </pre>
+ */
+final class PlayerJournal implements Closeable {
+    static final int MAGIC = 0x564A524E;                // "VJRN"
+    static final int VERSION = 1;
+    private static final String SNAPSHOT = "journal.snap";
+    private static final String LOG_PREFIX = "journal.", LOG_SUFFIX = ".wal";
+
+    private final Path dir;
+    private final Supplier<List<String[]>> state;       // Commands recreating the current state
+    private final int interval;                         // Records between snapshots
+    private final Thread thread;
+
+    private final Object lock = new Object();           // Guards the fields below
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();  // Awaiting sync
+    private FileChannel log = null;
+    private long generation;
+    private long appended = 0, durable = 0;             // Records appended and synced so far
+    private IOException failure = null;                 // Set once a sync fails
+    private boolean closed = false;
+
+    private int sinceSnapshot = 0;
+
+    /** Opens the journal held in a directory (creating it if need be), passing each command
+     * recorded there to {@code replay} in order, then compacts them into a fresh snapshot.
+     * {@code state} supplies the commands recreating the player's current state whenever a
+     * snapshot is taken, and must be consistent with the commands appended so far. */
+    PlayerJournal(Path dir, Consumer<String[]> replay, Supplier<List<String[]>> state)
+            throws IOException {
+        Files.createDirectories(dir);
+        this.dir = dir;
+        this.state = state;
+        this.interval = Math.max(1, Integer.getInteger("videos.state.snapshot", 1000));
+        this.generation = this.recover(replay);
+
+        this.thread = new Thread(this::sync, "journal-sync");
+        this.thread.setDaemon(true);
+        this.thread.start();
+        this.snapshot();
+    }
+
+    /** Replays the snapshot and the log generations following it, returning the latest
+     * generation found. */
+    private long recover(Consumer<String[]> replay) throws IOException {
+        long first = 0;
+        final Path snap = this.dir.resolve(SNAPSHOT);
+        if (Files.exists(snap)) {
+            final ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(snap));
+            if (isValid(buffer)) {
+                first = buffer.getLong(8);
+                buffer.position(16).limit(buffer.limit() - 4);
+                replay(buffer, replay);
+            } else
+                System.err.printf("Ignoring corrupt journal snapshot: %s\n", snap);
+        }
+
+        long last = first;
+        for (long gen : this.generations()) {
+            if (gen >= first) {
+                replay(ByteBuffer.wrap(Files.readAllBytes(this.logPath(gen))), replay);
+                last = gen;
+            }
+        }
+
+        return last;
+    }
+
+    private static boolean isValid(ByteBuffer buffer) {
+        if (buffer.limit() < 20 || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION)
+            return false;
+
+        final CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.limit() - 4);
+        return (int) crc.getValue() == buffer.getInt(buffer.limit() - 4);
+    }
+
+    /** Passes each record of a buffer to a consumer, stopping at the first torn or corrupt
+     * one. */
+    private static void replay(ByteBuffer buffer, Consumer<String[]> replay) {
+        final CRC32 crc = new CRC32();
+        while (buffer.remaining() >= 8) {
+            final int length = buffer.getInt();
+            final int checksum = buffer.getInt();
+            if (length < 0 || length > buffer.remaining())
+                return;
+
+            final int offset = buffer.arrayOffset() + buffer.position();
+            crc.reset();
+            crc.update(buffer.array(), offset, length);
+            if ((int) crc.getValue() != checksum)
+                return;
+
+            final String[] command;
+            try {
+                final DataInputStream in = new DataInputStream(
+                    new ByteArrayInputStream(buffer.array(), offset, length)
+                );
+                command = new String[in.readUnsignedByte()];
+                for (int i = 0; i < command.length; i++)
+                    command[i] = in.readUTF();
+            } catch (IOException e) {
+                return;
+            }
+            buffer.position(buffer.position() + length);
+            replay.accept(command);
+        }
+    }
+
+    /** Encodes a command as a framed record. */
+    private static byte[] frame(String... command) throws IOException {
+        final ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(payload);
+        out.writeByte(command.length);
+        for (String field : command)
+            out.writeUTF(field);
+
+        final CRC32 crc = new CRC32();
+        crc.update(payload.toByteArray());
+        return ByteBuffer.allocate(8 + payload.size())
+                         .putInt(payload.size())
+                         .putInt((int) crc.getValue())
+                         .put(payload.toByteArray())
+                         .array();
+    }
+
+    /** Appends a command to the log, returning once it is durable. */
+    void append(String... command) throws IOException {
+        this.append(Collections.singletonList(command));
+    }
+
+    /** Appends a batch of commands to the log, returning once they are all durable. */
+    void append(List<String[]> commands) throws IOException {
+        if (commands.isEmpty())
+            return;
+
+        final ByteArrayOutputStream records = new ByteArrayOutputStream();
+        for (String[] command : commands)
+            records.write(frame(command));
+        synchronized (this.lock) {
+            this.check();
+            if (this.closed)
+                throw new IOException("Journal is closed");
+            records.writeTo(this.pending);
+            this.appended += commands.size();
+            final long seq = this.appended;
+            this.lock.notifyAll();
+            while (this.durable < seq)
+                this.await();
+        }
+        this.sinceSnapshot += commands.size();
+    }
+
+    /** Compacts the log if {@code videos.state.snapshot} records have been appended since the last
+     * snapshot. As a snapshot is taken of the current state, this is called only once the changes
+     * appended have been applied. */
+    void checkpoint() throws IOException {
+        if (this.sinceSnapshot >= this.interval)
+            this.snapshot();
+    }
+
+    /** Writes and forces the pending records in batches until the journal is closed. */
+    private void sync() {
+        try {
+            while (true) {
+                final byte[] batch;
+                final long seq;
+                final FileChannel channel;
+                synchronized (this.lock) {
+                    while (this.pending.size() == 0 && !this.closed)
+                        this.lock.wait();
+                    if (this.pending.size() == 0)
+                        return;
+
+                    batch = this.pending.toByteArray();
+                    this.pending.reset();
+                    seq = this.appended;
+                    channel = this.log;
+                }
+
+                final ByteBuffer buffer = ByteBuffer.wrap(batch);
+                while (buffer.hasRemaining())
+                    channel.write(buffer);
+                channel.force(false);
+
+                synchronized (this.lock) {
+                    this.durable = seq;
+                    this.lock.notifyAll();
+                }
+            }
+        } catch (IOException e) {
+            synchronized (this.lock) {
+                this.failure = e;
+                this.lock.notifyAll();
+            }
+        } catch (InterruptedException e) {
+            // The journal has been closed
+        }
+    }
+
+    /** Waits (holding the lock) for the sync thread to make progress, throwing if it failed. */
+    private void await() throws IOException {
+        try {
+            this.lock.wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted awaiting the journal");
+        }
+        this.check();
+    }
+
+    private void check() throws IOException {
+        if (this.failure != null)
+            throw new IOException("Journal is unavailable", this.failure);
+    }
+
+    /** Compacts the log: starts a new generation of it, writes a snapshot of the current state
+     * replaying from that generation, syncs the directory holding it, then deletes the older
+     * generations. */
+    void snapshot() throws IOException {
+        final long gen;
+        synchronized (this.lock) {
+            this.check();
+            while (this.durable < this.appended)
+                this.await();
+
+            if (this.log != null)
+                this.log.close();
+            gen = ++this.generation;
+            this.log = FileChannel.open(
+                this.logPath(gen),
+                StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING
+            );
+        }
+        this.sinceSnapshot = 0;
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(gen);
+        for (String[] command : this.state.get())
+            out.write(frame(command));
+        final CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        out.writeInt((int) crc.getValue());
+
+        final Path tmp = this.dir.resolve(SNAPSHOT + ".tmp");
+        try (FileChannel channel = FileChannel.open(
+            tmp,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING
+        )) {
+            final ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+            channel.force(true);
+        }
+        Files.move(
+            tmp,
+            this.dir.resolve(SNAPSHOT),
+            StandardCopyOption.ATOMIC_MOVE,
+            StandardCopyOption.REPLACE_EXISTING
+        );
+        // The rename is durable only once the directory is, and must be before any log it
+        // replaces is deleted
+        this.syncDirectory();
+
+        for (long older : this.generations()) {
+            if (older < gen)
+                Files.deleteIfExists(this.logPath(older));
+        }
+    }
+
+    /** Forces the directory's entries to disk where the platform allows it. Some (e.g. Windows)
+     * can't open a directory as a channel at all, and there the rename is left to the file
+     * system's own metadata journal rather than refusing to snapshot. */
+    private void syncDirectory() {
+        try (FileChannel channel = FileChannel.open(this.dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // The platform can't sync directories
+        }
+    }
+
+    /** Returns the generations of the log present, in ascending order. */
+    private List<Long> generations() throws IOException {
+        final List<Long> gens = new ArrayList<>();
+        try (DirectoryStream<Path> paths = Files.newDirectoryStream(
+            this.dir,
+            LOG_PREFIX + "*" + LOG_SUFFIX
+        )) {
+            for (Path path : paths) {
+                final String name = path.getFileName().toString();
+                try {
+                    gens.add(Long.parseLong(
+                        name.substring(LOG_PREFIX.length(), name.length() - LOG_SUFFIX.length())
+                    ));
+                } catch (NumberFormatException e) {
+                    // Not a log generation
+                }
+            }
+        }
+
+        Collections.sort(gens);
+        return gens;
+    }
+
+    private Path logPath(long gen) {
+        return this.dir.resolve(LOG_PREFIX + gen + LOG_SUFFIX);
+    }
+
+    /** Stops the sync thread once every pending record is durable, then closes the log. */
+    @Override
+    public void close() throws IOException {
+        synchronized (this.lock) {
+            if (this.closed)
+                return;
+
+            this.closed = true;
+            this.lock.notifyAll();
+        }
+
+        try {
+            this.thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this.lock) {
+            if (this.log != null)
+                this.log.close();
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.google;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/** The class used to hold a player's playlists, keyed by case-folded name. Lookups are a single
+ * hash probe, and a view ordered by name (natural order) is kept alongside so listing every
+ * playlist needs no sort.
+ *
+ * <p>A reverse index maps each video ID to the playlists holding it, ordered by name, so the
+ * playlists containing a video are found without scanning any. It is kept up to date
+ * incrementally, so videos must be added to and removed from registered playlists through the
+ * registry rather than the playlists themselves. A clone holds exactly what its origin does until
+ * either is next edited, so cloning stays O(1) by linking the clone to its origin instead of to
+ * each video: a lookup adds the clones of each playlist it finds. Before either is edited, the
+ * clone's videos are indexed for it, once.
+ *
+ * <p>Each clone also remembers the playlist it was cloned from, so the player's state can recreate
+ * it as a clone of that playlist plus the changes since, rather than video by video. */
+final class PlaylistRegistry {
+    private static final Comparator<VideoPlaylist> BY_NAME =
+        Comparator.comparing(VideoPlaylist::getName);
+
+    private final HashMap<String, VideoPlaylist> byKey = new HashMap<>();
+    private final HashMap<String, TreeSet<VideoPlaylist>> containing = new HashMap<>();  // By ID
+    private final TreeMap<String, VideoPlaylist> byName = new TreeMap<>();
+    private final HashMap<VideoPlaylist, VideoPlaylist> origins = new HashMap<>();  // Unindexed
+    private final HashMap<VideoPlaylist, List<VideoPlaylist>> pending = new HashMap<>();  // Clones
+    private final HashMap<VideoPlaylist, VideoPlaylist> sources = new HashMap<>();  // For state
+
+    /** Returns the playlist with a given name (compared case-insensitively); null if not
+     * found. */
+    VideoPlaylist get(String name) {
+        return this.byKey.get(Video.fold(name));
+    }
+
+    /** Creates an empty playlist with a given name; returns null if one with the same name
+     * (compared case-insensitively) already exists. */
+    VideoPlaylist create(String name) {
+        final VideoPlaylist pl = new VideoPlaylist(name);
+        if (this.byKey.putIfAbsent(pl.getKey(), pl) != null)
+            return null;
+
+        this.byName.put(pl.getName(), pl);
+        return pl;
+    }
+
+    /** Removes the playlist with a given name (compared case-insensitively), returning it; null
+     * if not found. */
+    VideoPlaylist remove(String name) {
+        final VideoPlaylist pl = this.byKey.remove(Video.fold(name));
+        if (pl != null) {
+            this.byName.remove(pl.getName());
+            this.sources.remove(pl);
+            this.settleClones(pl);
+            if (!this.detach(pl))
+                pl.getVideos().forEach(vid -> this.unlink(vid.getVideoId(), pl));
+        }
+
+        return pl;
+    }
+
+    /** Creates a playlist with a given name holding the same videos as another, sharing its
+     * structure (see {@link VideoPlaylist#copy(String)}); returns null if one with the same name
+     * (compared case-insensitively) already exists. */
+    VideoPlaylist copy(VideoPlaylist source, String name) {
+        if (this.byKey.containsKey(Video.fold(name)))
+            return null;
+
+        final VideoPlaylist pl = source.copy(name);
+        this.byKey.put(pl.getKey(), pl);
+        this.byName.put(pl.getName(), pl);
+        if (!pl.isEmpty()) {
+            this.origins.put(pl, source);
+            this.pending.computeIfAbsent(source, key -> new ArrayList<>()).add(pl);
+            this.sources.put(pl, source);
+        }
+        return pl;
+    }
+
+    /** Returns the playlist a clone was copied from, given it is still registered under its name;
+     * null if there is none, or the clone has since been emptied. */
+    VideoPlaylist source(VideoPlaylist pl) {
+        final VideoPlaylist source = this.sources.get(pl);
+        return source != null && this.byKey.get(source.getKey()) == source ? source : null;
+    }
+
+    /** Appends a video to a playlist unless already present; returns whether it was added. */
+    boolean add(VideoPlaylist pl, Video vid) {
+        if (pl.contains(vid))
+            return false;
+
+        this.settle(pl);
+        pl.add(vid);
+        this.link(vid.getVideoId(), pl);
+        return true;
+    }
+
+    /** Removes a video from a playlist if present; returns whether it was removed. */
+    boolean remove(VideoPlaylist pl, Video vid) {
+        return this.remove(pl, vid.getVideoId());
+    }
+
+    private boolean remove(VideoPlaylist pl, String id) {
+        if (!pl.contains(id))
+            return false;
+
+        this.settle(pl);
+        pl.remove(id);
+        this.unlink(id, pl);
+        if (pl.isEmpty())
+            this.sources.remove(pl);
+        return true;
+    }
+
+    /** Removes every video from a playlist. */
+    void clear(VideoPlaylist pl) {
+        this.sources.remove(pl);
+        this.settleClones(pl);
+        if (!this.detach(pl))
+            pl.getVideos().forEach(vid -> this.unlink(vid.getVideoId(), pl));
+        pl.clear();
+    }
+
+    /** Removes a video (by ID) from every playlist holding it, as when it leaves the catalog. */
+    void evict(String id) {
+        for (VideoPlaylist pl : new ArrayList<>(this.containing(id)))
+            this.remove(pl, id);
+    }
+
+    /** Returns a read-only view of the playlists holding a video (by ID), ordered by name. */
+    Collection<VideoPlaylist> containing(String id) {
+        final TreeSet<VideoPlaylist> indexed = this.containing.get(id);
+        if (indexed == null)
+            return Collections.emptySet();
+        if (this.pending.isEmpty())
+            return Collections.unmodifiableSet(indexed);
+
+        final TreeSet<VideoPlaylist> pls = new TreeSet<>(BY_NAME);
+        final Deque<VideoPlaylist> found = new ArrayDeque<>(indexed);
+        while (!found.isEmpty()) {
+            final VideoPlaylist pl = found.pop();
+            pls.add(pl);
+            found.addAll(this.pending.getOrDefault(pl, Collections.emptyList()));
+        }
+
+        return Collections.unmodifiableSet(pls);
+    }
+
+    /** Indexes a playlist's videos, if it is an unindexed clone, and those of its own clones, as
+     * it is about to be edited and will no longer hold what they do. */
+    private void settle(VideoPlaylist pl) {
+        if (this.detach(pl))
+            pl.getVideos().forEach(vid -> this.link(vid.getVideoId(), pl));
+        this.settleClones(pl);
+    }
+
+    /** Indexes the videos of a playlist's unindexed clones, which then no longer follow it. */
+    private void settleClones(VideoPlaylist pl) {
+        final List<VideoPlaylist> clones = this.pending.remove(pl);
+        if (clones == null)
+            return;
+
+        for (VideoPlaylist clone : clones) {
+            this.origins.remove(clone);
+            clone.getVideos().forEach(vid -> this.link(vid.getVideoId(), clone));
+        }
+    }
+
+    /** Stops an unindexed clone following its origin; returns whether it was one. */
+    private boolean detach(VideoPlaylist pl) {
+        final VideoPlaylist origin = this.origins.remove(pl);
+        if (origin == null)
+            return false;
+
+        final List<VideoPlaylist> siblings = this.pending.get(origin);
+        siblings.remove(pl);
+        if (siblings.isEmpty())
+            this.pending.remove(origin);
+        return true;
+    }
+
+    private void link(String id, VideoPlaylist pl) {
+        this.containing.computeIfAbsent(id, key -> new TreeSet<>(BY_NAME)).add(pl);
+    }
+
+    private void unlink(String id, VideoPlaylist pl) {
+        final TreeSet<VideoPlaylist> pls = this.containing.get(id);
+        if (pls != null && pls.remove(pl) && pls.isEmpty())
+            this.containing.remove(id);
+    }
+
+    /** Returns a read-only view of every playlist ordered by name. */
+    Collection<VideoPlaylist> sorted() {
+        return Collections.unmodifiableCollection(this.byName.values());
+    }
+
+    /** Determines whether no playlists exist. */
+    boolean isEmpty() {
+        return this.byKey.isEmpty();
+    }
+
+    /** Returns the number of playlists. */
+    int size() {
+        return this.byKey.size();
+    }
+}
@@ -0,0 +1,125 @@
+package com.google;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+
+/** The class used to combine posting lists of ordinals sharing one order (by title) lazily, so a
+ * caller reading only the first few matches, e.g. a page of results, only pays for those.
+ *
+ * <p>An intersection walks the smallest of its required lists, seeking each larger list forward
+ * (with {@code ceiling}) to the current candidate and the smallest forward past any mismatch, so
+ * it costs about as much as its most selective list, however long the others are. A union
+ * merges its iterators, each step taking the least of their next ordinals. */
+final class Postings {
+    private Postings() {
+    }
+
+    /** Returns an iterator over the ordinals present in every required list and none of the
+     * excluded ones, in order, starting after a given ordinal (or from the first if null). The
+     * required lists, of which there must be at least one, are given smallest first. */
+    static Iterator<Integer> intersect(
+        List<? extends NavigableSet<Integer>> required,
+        List<? extends NavigableSet<Integer>> excluded,
+        Integer after
+    ) {
+        final NavigableSet<Integer> smallest = required.get(0);
+        final Integer first = after != null
+            ? smallest.higher(after)
+            : smallest.isEmpty() ? null : smallest.first();
+
+        return new Iterator<>() {
+            private Integer next = seek(required, excluded, first);
+
+            @Override
+            public boolean hasNext() {
+                return this.next != null;
+            }
+
+            @Override
+            public Integer next() {
+                if (this.next == null)
+                    throw new NoSuchElementException();
+
+                final Integer ordinal = this.next;
+                this.next = seek(required, excluded, smallest.higher(ordinal));
+                return ordinal;
+            }
+        };
+    }
+
+    /** Returns an iterator over the ordinals of several iterators, each in a given order, in that
+     * order and without duplicates. The least next ordinal is found by comparing every iterator's,
+     * as there are only as many as a query has conjunctions. */
+    static Iterator<Integer> union(List<Iterator<Integer>> iterators, Comparator<Integer> order) {
+        if (iterators.size() == 1)
+            return iterators.get(0);
+
+        final Integer[] heads = new Integer[iterators.size()];     // Next of each; null once done
+        for (int i = 0; i < heads.length; i++)
+            heads[i] = iterators.get(i).hasNext() ? iterators.get(i).next() : null;
+
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                for (Integer head : heads) {
+                    if (head != null)
+                        return true;
+                }
+
+                return false;
+            }
+
+            @Override
+            public Integer next() {
+                Integer least = null;
+                for (Integer head : heads) {
+                    if (head != null && (least == null || order.compare(head, least) < 0))
+                        least = head;
+                }
+                if (least == null)
+                    throw new NoSuchElementException();
+
+                for (int i = 0; i < heads.length; i++) {
+                    if (least.equals(heads[i]))
+                        heads[i] = iterators.get(i).hasNext() ? iterators.get(i).next() : null;
+                }
+                return least;
+            }
+        };
+    }
+
+    /** Returns the first ordinal from a candidate of the smallest required list onwards which is
+     * present in every required list and none of the excluded ones; null if there is none. */
+    private static Integer seek(
+        List<? extends NavigableSet<Integer>> required,
+        List<? extends NavigableSet<Integer>> excluded,
+        Integer candidate
+    ) {
+        final NavigableSet<Integer> smallest = required.get(0);
+        seek:
+        while (candidate != null) {
+            for (int i = 1; i < required.size(); i++) {
+                final Integer next = required.get(i).ceiling(candidate);
+                if (next == null)
+                    return null;
+                if (!next.equals(candidate)) {
+                    candidate = smallest.ceiling(next);
+                    continue seek;
+                }
+            }
+            for (NavigableSet<Integer> list : excluded) {
+                if (list.contains(candidate)) {
+                    candidate = smallest.higher(candidate);
+                    continue seek;
+                }
+            }
+
+            return candidate;
+        }
+
+        return null;
+    }
+}
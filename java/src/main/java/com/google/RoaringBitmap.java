@@ -0,0 +1,293 @@
+package com.google;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/** The class used to hold a compressed set of non-negative ints, e.g. video ordinals. Values are
+ * grouped by their upper 16 bits into containers, each holding the lower 16 bits either as a
+ * sorted array (while sparse) or as a 65536-bit bitmap (once dense), so both a handful of flagged
+ * videos and a whole catalog are held compactly, and values are found by rank a container at a
+ * time. */
+final class RoaringBitmap {
+    static final int ARRAY_LIMIT = 4096;               // Largest container kept as an array
+
+    private char[] keys = new char[0];                  // Sorted upper 16 bits of each container
+    private Container[] containers = new Container[0];
+    private int size = 0;                               // Containers in use
+
+    /** Adds a value; returns false if it was already present. */
+    boolean add(int value) {
+        final char key = (char) (value >>> 16);
+        int i = this.indexOf(key);
+        if (i < 0) {
+            i = -i - 1;
+            this.insert(i, key, new ArrayContainer());
+        }
+
+        final int before = this.containers[i].cardinality();
+        this.containers[i] = this.containers[i].add((char) value);
+        return this.containers[i].cardinality() > before;
+    }
+
+    /** Removes a value; returns false if it wasn't present. */
+    boolean remove(int value) {
+        final int i = this.indexOf((char) (value >>> 16));
+        if (i < 0)
+            return false;
+
+        final int before = this.containers[i].cardinality();
+        final Container c = this.containers[i].remove((char) value);
+        if (c.cardinality() == 0)
+            this.delete(i);
+        else
+            this.containers[i] = c;
+
+        return c.cardinality() < before;
+    }
+
+    /** Determines whether a value is present. */
+    boolean contains(int value) {
+        if (value < 0)
+            return false;
+
+        final int i = this.indexOf((char) (value >>> 16));
+        return i >= 0 && this.containers[i].contains((char) value);
+    }
+
+    /** Returns the number of values present. */
+    int cardinality() {
+        int n = 0;
+        for (int i = 0; i < this.size; i++)
+            n += this.containers[i].cardinality();
+
+        return n;
+    }
+
+    /** Determines whether no values are present. */
+    boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    /** Returns the value of a given rank (0-based, in ascending order). */
+    int select(int rank) {
+        for (int i = 0; i < this.size; i++) {
+            final int n = this.containers[i].cardinality();
+            if (rank < n)
+                return this.keys[i] << 16 | this.containers[i].select(rank);
+            rank -= n;
+        }
+
+        throw new IndexOutOfBoundsException("Rank exceeds cardinality");
+    }
+
+    /** Returns the number of values present which are less than a given value. */
+    int rank(int value) {
+        final char key = (char) (value >>> 16);
+        int rank = 0;
+        for (int i = 0; i < this.size && this.keys[i] <= key; i++) {
+            rank += this.keys[i] < key
+                ? this.containers[i].cardinality()
+                : this.containers[i].rank((char) value);
+        }
+
+        return rank;
+    }
+
+    /** Passes each value to an action in ascending order. */
+    void forEach(IntConsumer action) {
+        for (int i = 0; i < this.size; i++) {
+            final int high = this.keys[i] << 16;
+            this.containers[i].forEach(low -> action.accept(high | low));
+        }
+    }
+
+    /** Returns the position of a container key, or (-insertion point - 1) if absent. */
+    private int indexOf(char key) {
+        return Arrays.binarySearch(this.keys, 0, this.size, key);
+    }
+
+    private void insert(int i, char key, Container c) {
+        if (this.size == this.keys.length) {
+            final int capacity = Math.max(4, this.size * 2);
+            this.keys = Arrays.copyOf(this.keys, capacity);
+            this.containers = Arrays.copyOf(this.containers, capacity);
+        }
+        System.arraycopy(this.keys, i, this.keys, i + 1, this.size - i);
+        System.arraycopy(this.containers, i, this.containers, i + 1, this.size - i);
+        this.keys[i] = key;
+        this.containers[i] = c;
+        this.size++;
+    }
+
+    private void delete(int i) {
+        System.arraycopy(this.keys, i + 1, this.keys, i, this.size - i - 1);
+        System.arraycopy(this.containers, i + 1, this.containers, i, this.size - i - 1);
+        this.containers[--this.size] = null;
+    }
+
+    /** The lower 16 bits of the values sharing one key. Updates return the container to keep,
+     * which differs from the receiver when crossing {@link #ARRAY_LIMIT}. */
+    private abstract static class Container {
+        abstract boolean contains(char low);
+
+        abstract Container add(char low);
+
+        abstract Container remove(char low);
+
+        abstract int cardinality();
+
+        abstract int select(int rank);
+
+        abstract int rank(char low);
+
+        abstract void forEach(IntConsumer action);
+    }
+
+    /** A sparse container, holding its values in a sorted array. */
+    private static final class ArrayContainer extends Container {
+        private char[] values = new char[4];
+        private int n = 0;
+
+        @Override
+        boolean contains(char low) {
+            return Arrays.binarySearch(this.values, 0, this.n, low) >= 0;
+        }
+
+        @Override
+        Container add(char low) {
+            int i = Arrays.binarySearch(this.values, 0, this.n, low);
+            if (i >= 0)
+                return this;
+            if (this.n == ARRAY_LIMIT)
+                return new BitmapContainer(this).add(low);
+
+            i = -i - 1;
+            if (this.n == this.values.length)
+                this.values = Arrays.copyOf(this.values, Math.min(ARRAY_LIMIT, this.n * 2));
+            System.arraycopy(this.values, i, this.values, i + 1, this.n - i);
+            this.values[i] = low;
+            this.n++;
+            return this;
+        }
+
+        @Override
+        Container remove(char low) {
+            final int i = Arrays.binarySearch(this.values, 0, this.n, low);
+            if (i >= 0) {
+                System.arraycopy(this.values, i + 1, this.values, i, this.n - i - 1);
+                this.n--;
+            }
+
+            return this;
+        }
+
+        @Override
+        int cardinality() {
+            return this.n;
+        }
+
+        @Override
+        int select(int rank) {
+            return this.values[rank];
+        }
+
+        @Override
+        int rank(char low) {
+            final int i = Arrays.binarySearch(this.values, 0, this.n, low);
+            return i >= 0 ? i : -i - 1;
+        }
+
+        @Override
+        void forEach(IntConsumer action) {
+            for (int i = 0; i < this.n; i++)
+                action.accept(this.values[i]);
+        }
+    }
+
+    /** A dense container, holding one bit per possible value. */
+    private static final class BitmapContainer extends Container {
+        private final long[] words = new long[1024];
+        private int n = 0;
+
+        BitmapContainer() {
+        }
+
+        BitmapContainer(ArrayContainer source) {
+            source.forEach(low -> this.words[low >>> 6] |= 1L << low);
+            this.n = source.cardinality();
+        }
+
+        @Override
+        boolean contains(char low) {
+            return (this.words[low >>> 6] & 1L << low) != 0;
+        }
+
+        @Override
+        Container add(char low) {
+            if (!this.contains(low)) {
+                this.words[low >>> 6] |= 1L << low;
+                this.n++;
+            }
+
+            return this;
+        }
+
+        @Override
+        Container remove(char low) {
+            if (this.contains(low)) {
+                this.words[low >>> 6] &= ~(1L << low);
+                this.n--;
+            }
+
+            return this.n > ARRAY_LIMIT ? this : this.toArray();
+        }
+
+        @Override
+        int cardinality() {
+            return this.n;
+        }
+
+        @Override
+        int select(int rank) {
+            for (int i = 0; i < this.words.length; i++) {
+                final int bits = Long.bitCount(this.words[i]);
+                if (rank < bits) {
+                    long word = this.words[i];
+                    for (int r = 0; r < rank; r++)
+                        word &= word - 1;
+                    return i << 6 | Long.numberOfTrailingZeros(word);
+                }
+                rank -= bits;
+            }
+
+            throw new IndexOutOfBoundsException("Rank exceeds cardinality");
+        }
+
+        @Override
+        int rank(char low) {
+            int rank = 0;
+            for (int i = 0; i < low >>> 6; i++)
+                rank += Long.bitCount(this.words[i]);
+
+            return rank + Long.bitCount(this.words[low >>> 6] & (1L << low) - 1);
+        }
+
+        @Override
+        void forEach(IntConsumer action) {
+            for (int i = 0; i < this.words.length; i++) {
+                long word = this.words[i];
+                while (word != 0) {
+                    action.accept(i << 6 | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+
+        private ArrayContainer toArray() {
+            final ArrayContainer result = new ArrayContainer();
+            result.values = new char[Math.max(4, this.n)];
+            this.forEach(low -> result.values[result.n++] = (char) low);
+            return result;
+        }
+    }
+}
@@ -11,17 +11,18 @@ public class Run {
             "Hello and welcome to YouTube, what would you like to do?\n" +
             "Enter HELP for list of available commands or EXIT to terminate"
         );
-        var videoPlayer = new VideoPlayer();
-        var parser = new CommandParser(videoPlayer);
-        var scanner = new Scanner(System.in);
-        while (true) {
-            System.out.print("YT> ");
-            var input = scanner.nextLine();
-            if (input.equalsIgnoreCase("exit")) {
-                System.out.println("YouTube has now terminated. Thank you and goodbye!");
-                return;
+        try (var videoPlayer = new VideoPlayer()) {
+            var parser = new CommandParser(videoPlayer);
+            var scanner = new Scanner(System.in);
+            while (true) {
+                System.out.print("YT> ");
+                var input = scanner.nextLine();
+                if (input.equalsIgnoreCase("exit")) {
+                    System.out.println("YouTube has now terminated. Thank you and goodbye!");
+                    return;
+                }
+                parser.executeCommand(Arrays.asList(input.split("\\s+")));
             }
-            parser.executeCommand(Arrays.asList(input.split("\\s+")));
         }
     }
 }
@@ -0,0 +1,142 @@
+package com.google;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/** The class used to cache the results of recent searches, keyed by search mode and normalised
+ * term or tag query, evicting the least recently used once full. An entry is dropped exactly
+ * when a video whose title contains its term, or which carries a tag of its query, enters or
+ * leaves the catalog or changes its flag, so a cached result never differs from a fresh
+ * search. */
+public final class SearchCache {
+    static final int TITLE = 1, TAG = 2;                // Search modes
+
+    private final int capacity;
+    private final LinkedHashMap<String, Entry> entries;     // Most recently used, in access order
+    private long hits = 0, misses = 0, invalidations = 0;
+
+    SearchCache(int capacity) {
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return this.size() > capacity;
+            }
+        };
+    }
+
+    /** Returns a cache sized by the {@code videos.search.cache} property (default 256); zero
+     * disables caching. */
+    static SearchCache fromConfig() {
+        return new SearchCache(Math.max(0, Integer.getInteger("videos.search.cache", 256)));
+    }
+
+    /** Returns the cached results of a search, counting a hit; null (counting a miss) if there
+     * are none. */
+    List<Video> get(int mode, String term) {
+        final Entry entry = this.entries.get(mode + ":" + term);
+        if (entry == null) {
+            this.misses++;
+            return null;
+        }
+
+        this.hits++;
+        return entry.videos;
+    }
+
+    /** Caches the results of a title search, returning a read-only view of them. */
+    List<Video> put(String term, List<Video> videos) {
+        return this.put(TITLE, term, null, videos);
+    }
+
+    /** Caches the results of a tag query (keyed by its normalised form), returning a read-only
+     * view of them. */
+    List<Video> put(TagQuery query, List<Video> videos) {
+        return this.put(TAG, query.toString(), query, videos);
+    }
+
+    private List<Video> put(int mode, String term, TagQuery query, List<Video> videos) {
+        final List<Video> vl = Collections.unmodifiableList(videos);
+        if (this.capacity > 0)
+            this.entries.put(mode + ":" + term, new Entry(term, query, vl));
+
+        return vl;
+    }
+
+    /** Drops the entries whose results a video would belong to, were it unflagged. */
+    void invalidate(Video vid) {
+        if (this.entries.isEmpty())
+            return;
+
+        final String title = vid.getFoldedTitle();
+        final Iterator<Entry> it = this.entries.values().iterator();
+        while (it.hasNext()) {
+            final Entry entry = it.next();
+            if (entry.query == null ? title.contains(entry.term) : entry.query.mentions(vid)) {
+                it.remove();
+                this.invalidations++;
+            }
+        }
+    }
+
+    /** Returns the number of searches answered from the cache. */
+    public long getHits() {
+        return this.hits;
+    }
+
+    /** Returns the number of searches which had to be run. */
+    public long getMisses() {
+        return this.misses;
+    }
+
+    /** Returns the fraction of searches answered from the cache, or 0 if there were none. */
+    public double getHitRatio() {
+        final long total = this.hits + this.misses;
+        return total == 0 ? 0 : (double) this.hits / total;
+    }
+
+    /** Returns the number of entries dropped because their results changed. */
+    public long getInvalidations() {
+        return this.invalidations;
+    }
+
+    /** Returns the number of searches currently cached. */
+    public int size() {
+        return this.entries.size();
+    }
+
+    /** Returns the number of searches the cache holds at most. */
+    public int getCapacity() {
+        return this.capacity;
+    }
+
+    /** Displays the statistics as required in {@link String} form. */
+    @Override
+    public String toString() {
+        return String.format(
+            "Search cache: %d hits, %d misses (%.1f%% hit ratio), %d invalidations, %d/%d entries",
+            this.hits,
+            this.misses,
+            this.getHitRatio() * 100,
+            this.invalidations,
+            this.size(),
+            this.capacity
+        );
+    }
+
+    /** The results of one search. */
+    private static final class Entry {
+        private final String term;
+        private final TagQuery query;                   // Null for a title search
+        private final List<Video> videos;
+
+        Entry(String term, TagQuery query, List<Video> videos) {
+            this.term = term;
+            this.query = query;
+            this.videos = videos;
+        }
+    }
+}
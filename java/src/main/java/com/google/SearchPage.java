@@ -0,0 +1,66 @@
+package com.google;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+
+/** The class used to represent one page of title-ordered search results, along with a token from
+ * which the next page resumes. The token records the rank and sort key of the page's last video,
+ * so the next page seeks straight past it in the (title-ordered) index instead of skipping over
+ * every earlier match again. */
+public final class SearchPage {
+    private final List<Video> videos;
+    private final int offset;                           // Rank (0-based) of the first video
+    private final String token;                         // Null on the last page
+
+    SearchPage(List<Video> videos, int offset, boolean more) {
+        this.videos = Collections.unmodifiableList(videos);
+        this.offset = offset;
+        this.token = more ? encode(offset + videos.size(), videos.get(videos.size() - 1)) : null;
+    }
+
+    /** Returns the videos of the page in title order. */
+    public List<Video> getVideos() {
+        return this.videos;
+    }
+
+    /** Returns the rank (0-based) of the page's first video among all results. */
+    public int getOffset() {
+        return this.offset;
+    }
+
+    /** Returns the token continuing the search after this page; null if there are no more
+     * results. */
+    public String getToken() {
+        return this.token;
+    }
+
+    /** Determines whether the page holds no videos. */
+    public boolean isEmpty() {
+        return this.videos.isEmpty();
+    }
+
+    private static String encode(int rank, Video last) {
+        final String s = rank + "\n" + last.getTitle() + "\n" + last.getVideoId();
+        return Base64.getUrlEncoder().withoutPadding()
+                     .encodeToString(s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Decodes a continuation token into the rank of the next result followed by the title and ID
+     * of the video preceding it; returns null if the token is malformed. */
+    static String[] decode(String token) {
+        try {
+            final String[] parts = new String(
+                Base64.getUrlDecoder().decode(token),
+                StandardCharsets.UTF_8
+            ).split("\n", 3);
+            if (parts.length != 3 || Integer.parseInt(parts[0]) < 0)
+                return null;
+
+            return parts;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
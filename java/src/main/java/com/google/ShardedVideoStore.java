@@ -0,0 +1,192 @@
+package com.google;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/** The class used to partition videos across several shard {@link VideoStore}s by consistent
+ * hashing of their IDs. Each shard owns many points on a hash ring, and a video belongs to the
+ * shard owning the first point at or after its ID's hash, so adding a shard only moves the
+ * roughly 1/N of videos falling just before its points. Lookups are routed to the owning shard,
+ * while {@link #select} scatters a query across every shard in parallel and merges their sorted
+ * results; {@link VideoLibrary#search} hands its unindexed searches to it. */
+final class ShardedVideoStore implements VideoStore {
+    private static final int POINTS_PER_SHARD = 128;
+
+    private final List<VideoStore> shards;
+    private int[] points = new int[0];                  // Sorted ring positions...
+    private int[] owners = new int[0];                  // ...and the shard owning each
+
+    ShardedVideoStore(List<VideoStore> shards) {
+        this.shards = new ArrayList<>();
+        shards.forEach(this::addShard);
+    }
+
+    /** Returns a store of {@code videos.store.shards} shards (one per processor by default), each
+     * of the engine named by {@code videos.store.shard} ({@code hash} by default). */
+    static ShardedVideoStore fromConfig() {
+        final int n = Integer.getInteger(
+            "videos.store.shards",
+            Runtime.getRuntime().availableProcessors()
+        );
+        final String engine = System.getProperty("videos.store.shard", "hash");
+        final List<VideoStore> shards = new ArrayList<>(n);
+        for (int i = 0; i < n; i++)
+            shards.add(VideoStore.named(engine));
+
+        return new ShardedVideoStore(shards);
+    }
+
+    /** Adds a shard to the ring, moving across the videos it now owns; returns how many moved. */
+    int addShard(VideoStore shard) {
+        final int index = this.shards.size();
+        this.shards.add(shard);
+
+        final int[] points = Arrays.copyOf(this.points, this.points.length + POINTS_PER_SHARD);
+        final int[] owners = Arrays.copyOf(this.owners, points.length);
+        for (int i = 0; i < POINTS_PER_SHARD; i++) {
+            points[this.points.length + i] = mix(index * 0x9E3779B9 + i);
+            owners[this.points.length + i] = index;
+        }
+        this.sortRing(points, owners);
+
+        int moved = 0;
+        for (int s = 0; s < index; s++) {
+            final List<Video> leaving = new ArrayList<>();
+            final VideoStore source = this.shards.get(s);
+            source.forEach(
+                vid -> {
+                    if (this.ownerOf(vid.getVideoId()) == index)
+                        leaving.add(vid);
+                }
+            );
+            for (Video vid : leaving) {
+                // A view dies with its slot, so it is detached before leaving the source
+                shard.put(vid.detach());
+                source.remove(vid.getVideoId());
+            }
+            moved += leaving.size();
+        }
+
+        return moved;
+    }
+
+    /** Returns the number of shards. */
+    int shardCount() {
+        return this.shards.size();
+    }
+
+    @Override
+    public Video get(String id) {
+        return this.shardOf(id).get(id);
+    }
+
+    @Override
+    public void put(Video vid) {
+        this.shardOf(vid.getVideoId()).put(vid);
+    }
+
+    @Override
+    public void update(Video source) {
+        this.shardOf(source.getVideoId()).update(source);
+    }
+
+    @Override
+    public boolean remove(String id) {
+        return this.shardOf(id).remove(id);
+    }
+
+    @Override
+    public int size() {
+        return this.shards.stream().mapToInt(VideoStore::size).sum();
+    }
+
+    @Override
+    public void forEach(Consumer<? super Video> action) {
+        this.shards.forEach(shard -> shard.forEach(action));
+    }
+
+    /** Selects and sorts each shard's matches in parallel, then k-way merges the sorted runs. */
+    @Override
+    public List<Video> select(Predicate<? super Video> filter, Comparator<? super Video> order) {
+        final List<ForkJoinTask<List<Video>>> tasks = new ArrayList<>(this.shards.size());
+        for (VideoStore shard : this.shards)
+            tasks.add(ForkJoinPool.commonPool().submit(() -> shard.select(filter, order)));
+
+        final List<List<Video>> runs = new ArrayList<>(tasks.size());
+        int total = 0;
+        for (ForkJoinTask<List<Video>> task : tasks) {
+            final List<Video> run = task.join();
+            runs.add(run);
+            total += run.size();
+        }
+
+        // Each cursor is {run, position}; ties go to the lower run for a deterministic order
+        final PriorityQueue<int[]> heads = new PriorityQueue<>(
+            Math.max(1, runs.size()),
+            (a, b) -> {
+                final int cmp = order.compare(runs.get(a[0]).get(a[1]), runs.get(b[0]).get(b[1]));
+                return cmp != 0 ? cmp : Integer.compare(a[0], b[0]);
+            }
+        );
+        for (int r = 0; r < runs.size(); r++) {
+            if (!runs.get(r).isEmpty())
+                heads.add(new int[] {r, 0});
+        }
+
+        final List<Video> merged = new ArrayList<>(total);
+        while (!heads.isEmpty()) {
+            final int[] head = heads.poll();
+            final List<Video> run = runs.get(head[0]);
+            merged.add(run.get(head[1]));
+            if (++head[1] < run.size())
+                heads.add(head);
+        }
+
+        return merged;
+    }
+
+    private VideoStore shardOf(String id) {
+        return this.shards.get(this.ownerOf(id));
+    }
+
+    /** Returns the index of the shard owning the first ring point at or after an ID's hash. */
+    private int ownerOf(String id) {
+        int i = Arrays.binarySearch(this.points, mix(id.hashCode()));
+        if (i < 0)
+            i = -i - 1;
+        return this.owners[i == this.points.length ? 0 : i];
+    }
+
+    /** Sorts the ring's points, carrying each point's owner along with it. */
+    private void sortRing(int[] points, int[] owners) {
+        final long[] ring = new long[points.length];
+        for (int i = 0; i < ring.length; i++)
+            ring[i] = (long) points[i] << 32 | owners[i];
+        Arrays.sort(ring);
+        for (int i = 0; i < ring.length; i++) {
+            points[i] = (int) (ring[i] >> 32);
+            owners[i] = (int) ring[i];
+        }
+
+        this.points = points;
+        this.owners = owners;
+    }
+
+    /** Scrambles a hash so that similar IDs land far apart on the ring (MurmurHash3's
+     * finaliser). */
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
@@ -0,0 +1,183 @@
+package com.google;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/** The class used to hold a growable array of slots, some of them emptied, as a persistent 32-way
+ * trie. Each node counts the filled slots beneath it, so the {@code i}th filled slot, and the
+ * rank of a slot among the filled ones, are found in one descent without closing up the gaps.
+ *
+ * <p>{@link #fork()} shares the whole trie with a copy in O(1). Nodes are stamped with the
+ * owner that created them: a trie edits nodes it owns in place and copies any other node along
+ * the path it touches, and forking hands both tries a new owner. Copies therefore share every
+ * node neither has changed since the fork. */
+final class SlotTrie<E> {
+    private static final int BITS = 5, WIDTH = 1 << BITS, MASK = WIDTH - 1;
+
+    private Object owner = new Object();                // Stamps the nodes editable in place
+    private Node root = new Node(this.owner);
+    private int shift = 0;                              // Bits of a slot number above the leaves
+    private int end = 0;                                // Slots in use, including emptied ones
+
+    /** Returns a trie holding the same slots, sharing this one's nodes until either changes. */
+    SlotTrie<E> fork() {
+        final SlotTrie<E> copy = new SlotTrie<>();
+        copy.root = this.root;
+        copy.shift = this.shift;
+        copy.end = this.end;
+        this.owner = new Object();
+        return copy;
+    }
+
+    /** Appends an element in a new slot, returning its number. */
+    int append(E e) {
+        if (this.end == (long) WIDTH << this.shift) {
+            final Node grown = new Node(this.owner);
+            grown.children[0] = this.root;
+            grown.count = this.root.count;
+            this.root = grown;
+            this.shift += BITS;
+        }
+
+        Node node = this.root = this.editable(this.root);
+        node.count++;
+        for (int s = this.shift; s > 0; s -= BITS) {
+            final int k = (this.end >>> s) & MASK;
+            final Node child = node.children[k] == null
+                ? new Node(this.owner)
+                : this.editable((Node) node.children[k]);
+            node.children[k] = child;
+            child.count++;
+            node = child;
+        }
+        node.children[this.end & MASK] = e;
+
+        return this.end++;
+    }
+
+    /** Returns the element in a slot; null if it has been emptied. */
+    @SuppressWarnings("unchecked")
+    E get(int slot) {
+        Node node = this.root;
+        for (int s = this.shift; s > 0; s -= BITS)
+            node = (Node) node.children[(slot >>> s) & MASK];
+
+        return (E) node.children[slot & MASK];
+    }
+
+    /** Empties a slot. */
+    void empty(int slot) {
+        if (this.get(slot) == null)
+            return;
+
+        Node node = this.root = this.editable(this.root);
+        node.count--;
+        for (int s = this.shift; s > 0; s -= BITS) {
+            final int k = (slot >>> s) & MASK;
+            final Node child = this.editable((Node) node.children[k]);
+            node.children[k] = child;
+            child.count--;
+            node = child;
+        }
+        node.children[slot & MASK] = null;
+    }
+
+    /** Returns the element of the filled slot with a given rank (0-based). */
+    @SuppressWarnings("unchecked")
+    E select(int rank) {
+        Node node = this.root;
+        for (int s = this.shift; s > 0; s -= BITS) {
+            for (Object child : node.children) {
+                final int count = child == null ? 0 : ((Node) child).count;
+                if (rank < count) {
+                    node = (Node) child;
+                    break;
+                }
+                rank -= count;
+            }
+        }
+        for (Object e : node.children) {
+            if (e != null && rank-- == 0)
+                return (E) e;
+        }
+
+        throw new IndexOutOfBoundsException("Rank out of bounds");
+    }
+
+    /** Returns the number of filled slots before a given slot. */
+    int rank(int slot) {
+        int rank = 0;
+        Node node = this.root;
+        for (int s = this.shift; s > 0; s -= BITS) {
+            final int k = (slot >>> s) & MASK;
+            for (int i = 0; i < k; i++) {
+                if (node.children[i] != null)
+                    rank += ((Node) node.children[i]).count;
+            }
+            node = (Node) node.children[k];
+        }
+        for (int i = 0; i < (slot & MASK); i++) {
+            if (node.children[i] != null)
+                rank++;
+        }
+
+        return rank;
+    }
+
+    /** Returns the number of filled slots. */
+    int size() {
+        return this.root.count;
+    }
+
+    /** Returns the number of slots in use, including emptied ones. */
+    int end() {
+        return this.end;
+    }
+
+    /** Returns an iterator over the elements of the filled slots, in slot order. */
+    Iterator<E> iterator() {
+        return new Iterator<>() {
+            private int slot = 0;
+            private int left = SlotTrie.this.size();
+
+            @Override
+            public boolean hasNext() {
+                return this.left > 0;
+            }
+
+            @Override
+            public E next() {
+                if (this.left == 0)
+                    throw new NoSuchElementException();
+
+                E e;
+                do {
+                    e = SlotTrie.this.get(this.slot++);
+                } while (e == null);
+                this.left--;
+                return e;
+            }
+        };
+    }
+
+    private Node editable(Node node) {
+        if (node.owner == this.owner)
+            return node;
+
+        final Node copy = new Node(this.owner);
+        System.arraycopy(node.children, 0, copy.children, 0, WIDTH);
+        copy.count = node.count;
+        return copy;
+    }
+
+    /** A node of the trie. */
+    private static final class Node {
+        private final Object owner;
+        private final Object[] children = new Object[WIDTH];    // Sub-nodes, elements at leaves
+        private int count = 0;                                  // Filled slots beneath
+
+        Node(Object owner) {
+            this.owner = owner;
+        }
+    }
+}
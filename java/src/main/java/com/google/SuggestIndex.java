@@ -0,0 +1,85 @@
+package com.google;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+/** The class used to complete prefixes of titles and tags. It is an immutable, sorted array of
+ * case-folded keys, each tied to the ordinal of the video it titles or to the name of a tag.
+ * Completing a prefix is a binary search for its first key followed by a walk over the keys
+ * sharing it, so it allocates nothing beyond the completions returned. Tags sort apart from
+ * titles as they start with {@code #}.
+ *
+ * <p>Titles are tied to their videos by ordinal rather than by reference, so the index holds no
+ * {@link Video}s and doesn't pin every video of a store which decodes them on demand, and they are
+ * displayed as spelt in the {@link OrdinalTable} rather than copied. The folded keys, though, are
+ * only shared with the videos where the store keeps {@link Video} objects, which fold their title
+ * once; a store decoding videos on demand (columnar or on disk) folds a fresh copy of each title,
+ * so there the index holds one more string per video. */
+final class SuggestIndex {
+    private final OrdinalTable table;                   // Spells the titles
+    private final String[] keys;                        // Case-folded, sorted
+    private final String[] names;                       // Spelling of each tag key, else null
+    private final int[] ordinals;                       // Of the video titled by each key, or -1
+
+    /** Creates the index over the titles of the live videos of a table and the tags they
+     * carry. */
+    SuggestIndex(OrdinalTable videos, TagDictionary dictionary) {
+        this.table = videos;
+        final List<Object[]> entries = new ArrayList<>(videos.size() * 2);
+        final boolean[] seen = new boolean[dictionary.size()];
+        videos.forEach(
+            vid -> {
+                entries.add(new Object[] {vid.getFoldedTitle(), null, vid.getOrdinal()});
+                for (int tag : vid.getTagIds()) {
+                    final int key = dictionary.key(tag);
+                    if (key < seen.length && !seen[key]) {
+                        seen[key] = true;
+                        final String name = dictionary.name(tag);
+                        entries.add(new Object[] {Video.fold(name), name, -1});
+                    }
+                }
+            }
+        );
+        entries.sort(Comparator.comparing(entry -> (String) entry[0]));
+
+        this.keys = new String[entries.size()];
+        this.names = new String[entries.size()];
+        this.ordinals = new int[entries.size()];
+        for (int i = 0; i < entries.size(); i++) {
+            this.keys[i] = (String) entries.get(i)[0];
+            this.names[i] = (String) entries.get(i)[1];
+            this.ordinals[i] = (Integer) entries.get(i)[2];
+        }
+    }
+
+    /** Returns up to {@code n} distinct completions of a prefix (compared case-insensitively) in
+     * alphabetical order, skipping the titles of videos whose ordinals a filter rejects. */
+    List<String> suggest(String prefix, int n, IntPredicate filter) {
+        final String folded = Video.fold(prefix);
+        int i = Arrays.binarySearch(this.keys, folded);
+        if (i < 0)
+            i = -i - 1;
+        while (i > 0 && this.keys[i - 1].equals(folded))
+            i--;
+
+        final List<String> completions = new ArrayList<>(Math.max(0, Math.min(n, 16)));
+        String last = null;
+        for (; i < this.keys.length && completions.size() < n; i++) {
+            if (!this.keys[i].startsWith(folded))
+                break;
+            if (this.ordinals[i] >= 0 && !filter.test(this.ordinals[i]))
+                continue;
+            if (!this.keys[i].equals(last)) {
+                completions.add(
+                    this.ordinals[i] >= 0 ? this.table.title(this.ordinals[i]) : this.names[i]
+                );
+                last = this.keys[i];
+            }
+        }
+
+        return completions;
+    }
+}
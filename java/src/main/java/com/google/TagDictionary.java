@@ -0,0 +1,113 @@
+package com.google;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** The class used to intern the tags of every video in a library, mapping each distinct spelling
+ * to a dense int ID and each spelling in turn to the ID of its normalised (case-folded) key, so
+ * videos can store and match tags as plain integers. Lookups are lock-free, allowing tags to be
+ * interned while the catalog is loaded in parallel. */
+public final class TagDictionary {
+    static final int[] NONE = new int[0];
+
+    private final Map<String, Integer> ids;             // Spelling -> tag ID
+    private final Map<String, Integer> keys;            // Normalised spelling -> key ID
+    private volatile String[] names;                    // Tag ID -> spelling
+    private volatile int[] folded;                      // Tag ID -> key ID
+
+    public TagDictionary() {
+        this.ids = new ConcurrentHashMap<>();
+        this.keys = new ConcurrentHashMap<>();
+        this.names = new String[64];
+        this.folded = new int[64];
+    }
+
+    /** Returns the normalised (locale-independent, case-folded) form of a tag. */
+    static String normalise(String tag) {
+        return Video.fold(tag);
+    }
+
+    /** Returns the ID of a tag's spelling, assigning the next free ID if it is new. */
+    int intern(String tag) {
+        final Integer id = this.ids.get(tag);
+        return id != null ? id : this.add(tag);
+    }
+
+    /** Interns each tag of a list, returning their IDs in the same order. */
+    int[] intern(List<String> tags) {
+        if (tags.isEmpty())
+            return NONE;
+
+        final int[] tagIds = new int[tags.size()];
+        for (int i = 0; i < tagIds.length; i++)
+            tagIds[i] = this.intern(tags.get(i));
+
+        return tagIds;
+    }
+
+    private synchronized int add(String tag) {
+        final Integer existing = this.ids.get(tag);
+        if (existing != null)
+            return existing;
+
+        final int id = this.ids.size();
+        final String key = normalise(tag);
+        Integer keyId = this.keys.get(key);
+        if (keyId == null) {
+            keyId = this.keys.size();
+            this.keys.put(key, keyId);
+        }
+
+        String[] names = this.names;
+        int[] folded = this.folded;
+        if (id == names.length) {
+            names = Arrays.copyOf(names, id * 2);
+            folded = Arrays.copyOf(folded, id * 2);
+        }
+        names[id] = tag;
+        folded[id] = keyId;
+        this.names = names;
+        this.folded = folded;
+        this.ids.put(tag, id);
+        return id;
+    }
+
+    /** Returns the spelling of a tag ID. */
+    String name(int id) {
+        return this.names[id];
+    }
+
+    /** Returns the normalised key ID of a tag ID. */
+    int key(int id) {
+        return this.folded[id];
+    }
+
+    /** Returns the normalised key ID matching a search term, or -1 if no video carries it. */
+    public int find(String term) {
+        final Integer key = this.keys.get(normalise(term));
+        return key != null ? key : -1;
+    }
+
+    /** Returns a read-only view of the spellings of the given tag IDs. */
+    List<String> names(int[] tagIds) {
+        return new AbstractList<>() {
+            @Override
+            public String get(int index) {
+                return TagDictionary.this.name(tagIds[index]);
+            }
+
+            @Override
+            public int size() {
+                return tagIds.length;
+            }
+        };
+    }
+
+    /** Returns the number of distinct tag spellings interned. */
+    public int size() {
+        return this.ids.size();
+    }
+}
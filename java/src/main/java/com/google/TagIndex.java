@@ -0,0 +1,61 @@
+package com.google;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+/** The class used to map each normalised tag key to a posting list of the ordinals of the videos
+ * carrying it, kept in title order. A tag search then walks one posting list in O(results)
+ * instead of testing every video. */
+final class TagIndex implements VideoIndex {
+    private final TagDictionary dictionary;
+    private final OrdinalTable table;
+    private final List<TreeSet<Integer>> postings;      // Key ID -> posting list
+
+    TagIndex(TagDictionary dictionary, OrdinalTable table) {
+        this.dictionary = dictionary;
+        this.table = table;
+        this.postings = new ArrayList<>();
+    }
+
+    /** Adds a video to the posting list of each of its tags. */
+    @Override
+    public void add(Video vid) {
+        final int ordinal = this.table.ordinalOf(vid);
+        for (int tag : vid.getTagIds()) {
+            final int key = this.dictionary.key(tag);
+            while (this.postings.size() <= key)
+                this.postings.add(null);
+            if (this.postings.get(key) == null)
+                this.postings.set(key, new TreeSet<>(this.table.titleOrder()));
+            this.postings.get(key).add(ordinal);
+        }
+    }
+
+    @Override
+    public void remove(Video vid) {
+        final int ordinal = this.table.ordinalOf(vid);
+        for (int tag : vid.getTagIds()) {
+            final int key = this.dictionary.key(tag);
+            if (key < this.postings.size() && this.postings.get(key) != null)
+                this.postings.get(key).remove(ordinal);
+        }
+    }
+
+    /** Returns the order of the posting lists, by the titles of the videos numbered. */
+    Comparator<Integer> order() {
+        return this.table.titleOrder();
+    }
+
+    /** Returns a read-only view of the ordinals of the videos carrying a tag key, in title
+     * order. */
+    NavigableSet<Integer> get(int key) {
+        if (key < 0 || key >= this.postings.size() || this.postings.get(key) == null)
+            return Collections.emptyNavigableSet();
+
+        return Collections.unmodifiableNavigableSet(this.postings.get(key));
+    }
+}
@@ -0,0 +1,147 @@
+package com.google;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+
+/** The class used to represent a boolean tag query such as {@code #cat AND #animal NOT #funny}.
+ * NOT binds tightest (excluding a tag from the conjunction it follows), then AND, then OR, so a
+ * query is a union of conjunctions, each with at least one tag required. A single word is always
+ * read as a tag, even if it spells an operator.
+ *
+ * <p>Each conjunction is planned over the title-ordered posting lists of a {@link TagIndex}:
+ * its required lists are ordered by size and intersected smallest first (see {@link Postings}),
+ * so it costs about as much as its most selective tag, however common the others are. The
+ * conjunctions are then merged, all lazily, so a page of matches costs only as much as the
+ * matches on it.
+ */
+final class TagQuery {
+    private final List<List<String>> required = new ArrayList<>();      // Per conjunction
+    private final List<List<String>> excluded = new ArrayList<>();      // Per conjunction
+
+    private TagQuery() {
+    }
+
+    /** Parses a query, normalising its tags; throws {@link IllegalArgumentException} if it is
+     * malformed. */
+    static TagQuery parse(String expression) {
+        final String[] words = expression.strip().split("\\s+");
+        final TagQuery query = new TagQuery();
+        query.conjoin();
+        if (words.length == 1) {
+            query.require(words[0]);
+            return query;
+        }
+
+        String op = "AND";
+        boolean operand = true;                     // Whether a tag is expected next
+        for (String word : words) {
+            final String upper = word.toUpperCase();
+            if (upper.equals("AND") || upper.equals("OR") || upper.equals("NOT")) {
+                if (operand)
+                    throw new IllegalArgumentException("Expected a tag before " + upper);
+                op = upper;
+                operand = true;
+            } else {
+                if (!operand)
+                    throw new IllegalArgumentException("Expected an operator before " + word);
+                if (op.equals("OR"))
+                    query.conjoin();
+                if (op.equals("NOT"))
+                    query.exclude(word);
+                else
+                    query.require(word);
+                operand = false;
+            }
+        }
+        if (operand)
+            throw new IllegalArgumentException("Expected a tag after " + op);
+
+        return query;
+    }
+
+    private void conjoin() {
+        this.required.add(new ArrayList<>());
+        this.excluded.add(new ArrayList<>());
+    }
+
+    private void require(String tag) {
+        this.required.get(this.required.size() - 1).add(TagDictionary.normalise(tag));
+    }
+
+    private void exclude(String tag) {
+        this.excluded.get(this.excluded.size() - 1).add(TagDictionary.normalise(tag));
+    }
+
+    /** Returns the ordinals of the videos matching the query, in title order. */
+    List<Integer> evaluate(TagIndex index, TagDictionary dictionary) {
+        final List<Integer> ordinals = new ArrayList<>();
+        this.matches(index, dictionary, null).forEachRemaining(ordinals::add);
+        return ordinals;
+    }
+
+    /** Returns an iterator over the ordinals of the videos matching the query, in title order,
+     * starting after a given ordinal (or from the first if null). Matches are found only as the
+     * iterator is advanced. */
+    Iterator<Integer> matches(TagIndex index, TagDictionary dictionary, Integer after) {
+        final List<Iterator<Integer>> conjunctions = new ArrayList<>(this.required.size());
+        for (int i = 0; i < this.required.size(); i++) {
+            conjunctions.add(
+                Postings.intersect(
+                    postings(this.required.get(i), index, dictionary),
+                    postings(this.excluded.get(i), index, dictionary),
+                    after
+                )
+            );
+        }
+
+        return Postings.union(conjunctions, index.order());
+    }
+
+    private static List<NavigableSet<Integer>> postings(
+        List<String> tags,
+        TagIndex index,
+        TagDictionary dictionary
+    ) {
+        final List<NavigableSet<Integer>> lists = new ArrayList<>(tags.size());
+        for (String tag : tags)
+            lists.add(index.get(dictionary.find(tag)));
+
+        lists.sort(Comparator.comparingInt(NavigableSet::size));
+        return lists;
+    }
+
+    /** Determines whether a video carries any tag the query mentions, i.e. whether its entering,
+     * leaving or changing flag could change the query's results. */
+    boolean mentions(Video vid) {
+        for (int i = 0; i < this.required.size(); i++) {
+            for (String tag : this.required.get(i)) {
+                if (vid.tagExists(tag))
+                    return true;
+            }
+            for (String tag : this.excluded.get(i)) {
+                if (vid.tagExists(tag))
+                    return true;
+            }
+        }
+
+        return false;
+    }
+
+    /** Displays the query in its normalised form, which identifies it for caching. */
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < this.required.size(); i++) {
+            if (i > 0)
+                sb.append(" OR ");
+            sb.append(String.join(" AND ", this.required.get(i)));
+            for (String tag : this.excluded.get(i))
+                sb.append(" NOT ").append(tag);
+        }
+
+        return sb.toString();
+    }
+}
@@ -0,0 +1,38 @@
+package com.google;
+
+import java.util.Collections;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+/** The class used to keep the ordinal of every video of the library (flagged or not) in title
+ * order, updated on each insertion and removal, so listings are a linear walk rather than a
+ * sort. */
+final class TitleOrder implements VideoIndex {
+    private final OrdinalTable table;
+    private final TreeSet<Integer> ordinals;
+
+    TitleOrder(OrdinalTable table) {
+        this.table = table;
+        this.ordinals = new TreeSet<>(table.titleOrder());
+    }
+
+    @Override
+    public void add(Video vid) {
+        this.ordinals.add(this.table.ordinalOf(vid));
+    }
+
+    @Override
+    public void remove(Video vid) {
+        this.ordinals.remove(this.table.ordinalOf(vid));
+    }
+
+    /** Returns a read-only view of the ordinal of every video in title order. */
+    NavigableSet<Integer> ordinals() {
+        return Collections.unmodifiableNavigableSet(this.ordinals);
+    }
+
+    /** Returns the number of videos held. */
+    int size() {
+        return this.ordinals.size();
+    }
+}
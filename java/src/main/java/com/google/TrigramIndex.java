@@ -0,0 +1,100 @@
+package com.google;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeSet;
+
+/** The class used to map every trigram (three consecutive characters) of each case-folded title
+ * to a posting list of the ordinals of the videos whose titles contain it, kept in title order.
+ * Any title containing a search term must contain each of the term's trigrams, so the candidates
+ * for a term of three or more characters are those in every one of its trigrams' posting lists,
+ * intersected smallest first (see {@link Postings}); only these are then verified against the
+ * term, as a title may hold each trigram without holding them in sequence, and matches come out
+ * already ordered. */
+final class TrigramIndex implements VideoIndex {
+    static final int N = 3;
+
+    private final OrdinalTable table;
+    private final HashMap<Long, TreeSet<Integer>> postings = new HashMap<>();
+
+    TrigramIndex(OrdinalTable table) {
+        this.table = table;
+    }
+
+    /** Adds a video to the posting list of each of its title's trigrams. */
+    @Override
+    public void add(Video vid) {
+        final int ordinal = this.table.ordinalOf(vid);
+        for (long gram : trigrams(vid.getFoldedTitle())) {
+            this.postings.computeIfAbsent(gram, g -> new TreeSet<>(this.table.titleOrder()))
+                         .add(ordinal);
+        }
+    }
+
+    @Override
+    public void remove(Video vid) {
+        final int ordinal = this.table.ordinalOf(vid);
+        for (long gram : trigrams(vid.getFoldedTitle())) {
+            final TreeSet<Integer> posting = this.postings.get(gram);
+            if (posting != null) {
+                posting.remove(ordinal);
+                if (posting.isEmpty())
+                    this.postings.remove(gram);
+            }
+        }
+    }
+
+    /** Returns an iterator over the ordinals of the candidates (in title order) for a folded term
+     * of at least {@link #N} characters, starting after a given ordinal (or from the first if
+     * null): those in the posting list of every trigram of the term. Each must still be verified
+     * against the term. */
+    Iterator<Integer> candidates(String folded, Integer after) {
+        final List<TreeSet<Integer>> lists = new ArrayList<>();
+        for (long gram : trigrams(folded)) {
+            final TreeSet<Integer> posting = this.postings.get(gram);
+            if (posting == null)
+                return Collections.emptyIterator();
+            lists.add(posting);
+        }
+
+        lists.sort(Comparator.comparingInt(TreeSet::size));
+        return Postings.intersect(lists, Collections.emptyList(), after);
+    }
+
+    /** Returns the videos whose titles contain a folded term of at least {@link #N} characters,
+     * sorted by title. */
+    List<Video> search(String folded) {
+        final List<Video> vl = new ArrayList<>();
+        final Iterator<Integer> candidates = this.candidates(folded, null);
+        while (candidates.hasNext()) {
+            final Video vid = this.table.video(candidates.next());
+            if (vid.getFoldedTitle().contains(folded))
+                vl.add(vid);
+        }
+
+        return vl;
+    }
+
+    /** Returns the distinct trigrams of a string, each packed into a long. */
+    private static long[] trigrams(String s) {
+        if (s.length() < N)
+            return new long[0];
+
+        final long[] grams = new long[s.length() - N + 1];
+        for (int i = 0; i < grams.length; i++)
+            grams[i] = (long) s.charAt(i) << 32 | (long) s.charAt(i + 1) << 16 | s.charAt(i + 2);
+        Arrays.sort(grams);
+
+        int n = 1;
+        for (int i = 1; i < grams.length; i++) {
+            if (grams[i] != grams[n - 1])
+                grams[n++] = grams[i];
+        }
+        return Arrays.copyOf(grams, n);
+    }
+}
@@ -1,36 +1,59 @@
 
 package com.google;
 
-import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Locale;
 import java.util.Objects;
 
 /** The class used to represent a video entity. */
 public class Video {
-    private final String title;
+    /** Orders videos by title (natural order), as they are listed, then by ID. */
+    public static final Comparator<Video> TITLE_ORDER =
+        Comparator.comparing(Video::getTitle).thenComparing(Video::getVideoId);
+
+    private String title;                       // Updated in place on catalog reload
+    private String foldedTitle;                 // Search key, folded once per title
     private final String id;
-    private final List<String> tags;
+    private int[] tags;                         // Updated in place on catalog reload
+    private final TagDictionary dictionary;     // Resolves the IDs held in tags
 
     private boolean flagged = false;            // Added as part of FLAG_VIDEO
     private String reason = null;               // Added as part of FLAG_VIDEO
+    private int ordinal = -1;                   // Assigned by the library's OrdinalTable
 
-    public Video(String title, String id, List<String> tags) {
+    Video(String title, String id, int[] tags, TagDictionary dictionary) {
         this.title = title;
+        this.foldedTitle = title == null ? null : fold(title);
         this.id = id;
-        this.tags = Collections.unmodifiableList(tags);
+        this.tags = tags;
+        this.dictionary = dictionary;
+    }
+
+    /** Creates a view whose state is held elsewhere, e.g. by {@link ColumnarVideoStore}; views
+     * override every accessor. */
+    Video(TagDictionary dictionary) {
+        this(null, null, TagDictionary.NONE, dictionary);
+    }
+
+    /** Returns the case-folded (locale-independent) form of a title, tag, playlist name or search
+     * term. A string with nothing to fold is returned as is, so the key costs no extra memory. */
+    static String fold(String s) {
+        return s.toLowerCase(Locale.ROOT);
     }
 
     /** Formats the video's tags as required in {@link String} form. */
     private String formatTags() {
-        if (this.tags.isEmpty())
+        final int[] tags = this.getTagIds();
+        if (tags.length == 0)
             return "[]";
 
         final StringBuilder sb = new StringBuilder("[");
-        for (int i = 0; i < this.tags.size(); i++) {
-            if (i == this.tags.size() - 1)
-                sb.append(this.tags.get(i) + "]");
+        for (int i = 0; i < tags.length; i++) {
+            if (i == tags.length - 1)
+                sb.append(this.dictionary.name(tags[i]) + "]");
             else
-                sb.append(this.tags.get(i) + " ");
+                sb.append(this.dictionary.name(tags[i]) + " ");
         }
 
         return sb.toString();
@@ -41,6 +64,11 @@ public class Video {
         return this.title;
     }
 
+    /** Returns the video's title folded by {@link #fold(String)}, as compared by searches. */
+    String getFoldedTitle() {
+        return this.foldedTitle;
+    }
+
     /** Returns the video's URL. */
     public String getVideoId() {
         return this.id;
@@ -48,19 +76,57 @@ public class Video {
 
     /** Returns a read-only collection of a video's tags. */
     public List<String> getTags() {
+        return this.dictionary.names(this.tags);
+    }
+
+    /** Returns the IDs of the video's tags within its library's {@link TagDictionary}. */
+    int[] getTagIds() {
         return this.tags;
     }
 
+    /** Returns the dictionary resolving the video's tag IDs. */
+    TagDictionary getTagDictionary() {
+        return this.dictionary;
+    }
+
     /** Determines whether a given term exists amongst the video's tags. */
     public boolean tagExists(String term) {
-        for (String tag : this.tags) {
-            if (tag.equalsIgnoreCase(term))
+        return this.hasTag(this.dictionary.find(term));
+    }
+
+    /** Determines whether the video carries a tag with the given normalised key ID. */
+    public boolean hasTag(int key) {
+        for (int tag : this.tags) {
+            if (this.dictionary.key(tag) == key)
                 return true;
         }
 
         return false;
     }
 
+    /** Returns the video's ordinal within its library; -1 until assigned. */
+    int getOrdinal() {
+        return this.ordinal;
+    }
+
+    /** Sets the video's ordinal within its library. */
+    void setOrdinal(int ordinal) {
+        this.ordinal = ordinal;
+    }
+
+    /** Returns the video as an object holding its own state: itself, unless it is a view onto a
+     * store's columns, which is copied (flag included) so it outlives its slot. */
+    Video detach() {
+        return this;
+    }
+
+    /** Replaces the video's title and tags with those of a newer version of the same entry. */
+    void update(Video source) {
+        this.title = source.getTitle();
+        this.foldedTitle = source.getFoldedTitle();
+        this.tags = source.getTagIds();
+    }
+
     /** Returns the video's "flagged" status. */
     public boolean isFlagged() {
         return this.flagged;
@@ -83,9 +149,25 @@ public class Video {
         this.reason = null;
     }
 
+    /** Compares videos by ID, as views of the same stored video may be distinct objects. */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof Video))
+            return false;
+
+        return this.getVideoId().equals(((Video) o).getVideoId());
+    }
+
+    @Override
+    public int hashCode() {
+        return this.getVideoId().hashCode();
+    }
+
     /** Displays the video as required in {@link String} form. */
     @Override
     public String toString() {
-        return this.title + " (" + this.id + ") " + this.formatTags();
+        return this.getTitle() + " (" + this.getVideoId() + ") " + this.formatTags();
     }
 }
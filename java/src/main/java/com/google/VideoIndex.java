@@ -0,0 +1,28 @@
+package com.google;
+
+import java.util.List;
+
+/** The interface implemented by the search structures a {@link VideoLibrary} keeps up to date as
+ * videos enter or leave the catalog. */
+interface VideoIndex {
+    /** Adds a video to the index. */
+    void add(Video vid);
+
+    /** Removes a video from the index; it must still have the title and tags it was added with. */
+    void remove(Video vid);
+
+    /** Returns an index forwarding each change to every index of a list. */
+    static VideoIndex all(List<? extends VideoIndex> indexes) {
+        return new VideoIndex() {
+            @Override
+            public void add(Video vid) {
+                indexes.forEach(index -> index.add(vid));
+            }
+
+            @Override
+            public void remove(Video vid) {
+                indexes.forEach(index -> index.remove(vid));
+            }
+        };
+    }
+}
@@ -1,25 +1,160 @@
-
 package com.google;
 
 import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.SoftReference;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NavigableSet;
+import java.util.Random;
 import java.util.Scanner;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 /** The class used to represent a video library entity. */
 public class VideoLibrary {
-    private final HashMap<String, Video> videos;
+    private final VideoStore videos;
+    private final TagDictionary tags;
+    private final CatalogLoader loader;
+    private final File catalog;
+    private final CatalogLoadMetrics metrics;
+    private CompiledCatalog compiled = null;            // Set while snapshot videos are unread
+    private volatile CatalogDiff pending = null;        // Staged reload, applied on next access
+    private long version = 0;                           // Bumped whenever the catalog changes
+    private SoftReference<LibrarySnapshot> snapshot;    // Shared until the version moves on
+    private final List<VideoIndex> indexes = new ArrayList<>();     // Those built so far
+    private OrdinalTable ordinals = null;               // Built on the first index or flag
+    private TitleOrder titleOrder = null;               // Built on the first listing
+    private TagIndex tagIndex = null;                   // Built on the first tag search
+    private TrigramIndex trigramIndex = null;           // Built on the first title search
+    private final SearchCache searchCache = SearchCache.fromConfig();
+    private SuggestIndex suggestions = null;            // Rebuilt after each catalog change
+    private final List<Consumer<String>> removals = new ArrayList<>();  // Told of removed IDs
 
     public VideoLibrary() {
-        this.videos = new HashMap<>();
+        this(CatalogLoader.fromConfig());
+    }
+
+    public VideoLibrary(CatalogLoader loader) {
+        this(loader, catalogFile());
+    }
+
+    VideoLibrary(CatalogLoader loader, File catalog) {
+        this(loader, catalog, VideoStore.fromConfig());
+    }
+
+    VideoLibrary(CatalogLoader loader, File catalog, VideoStore store) {
+        this(loader, catalog, store, new TagDictionary());
         try {
-            Scanner scanner = new Scanner(
-                new File(this.getClass().getResource("/videos.txt").getFile())
+            this.load();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private VideoLibrary(CatalogLoader loader, File catalog, VideoStore store, TagDictionary tags) {
+        this.videos = store;
+        this.tags = tags;
+        this.loader = loader;
+        this.catalog = catalog;
+        this.metrics = new CatalogLoadMetrics(loader);
+        this.indexes.add(
+            new VideoIndex() {
+                @Override
+                public void add(Video vid) {
+                    VideoLibrary.this.searchCache.invalidate(vid);
+                }
+
+                @Override
+                public void remove(Video vid) {
+                    VideoLibrary.this.searchCache.invalidate(vid);
+                }
+            }
+        );
+    }
+
+    /** Populates the library from its catalog with its loader; throws if the catalog can't be
+     * read. */
+    private void load() throws IOException {
+        switch (this.loader) {
+            case SNAPSHOT:
+                if (!this.openSnapshot(this.catalog)) {
+                    System.err.printf(
+                        "Catalog snapshot %s is missing or stale, loading %s instead\n",
+                        snapshotFile(this.catalog),
+                        this.catalog
+                    );
+                    this.loadMapped(this.catalog.toPath(), true);
+                }
+                break;
+            case MAPPED:
+            case PARALLEL:
+                this.loadMapped(this.catalog.toPath(), this.loader == CatalogLoader.PARALLEL);
+                break;
+            default:
+                this.loadScanned(this.catalog);
+                break;
+        }
+
+        this.metrics.setEntries(
+            this.compiled == null ? this.videos.size() : this.compiled.size()
+        );
+        if (Boolean.getBoolean("videos.metrics"))
+            System.err.println(this.metrics);
+    }
+
+    /** Returns the catalog file named by the {@code videos.catalog} property, defaulting to the
+     * bundled {@code /videos.txt} resource. */
+    static File catalogFile() {
+        final String path = System.getProperty("videos.catalog");
+        if (path != null && !path.isBlank())
+            return new File(path);
+
+        return new File(VideoLibrary.class.getResource("/videos.txt").getFile());
+    }
+
+    /** Returns the snapshot file named by the {@code videos.snapshot} property, defaulting to the
+     * given catalog's path suffixed with {@code .snap}. */
+    static File snapshotFile(File catalog) {
+        final String path = System.getProperty("videos.snapshot");
+        if (path != null && !path.isBlank())
+            return new File(path);
+
+        return new File(catalog.getPath() + ".snap");
+    }
+
+    /** Opens the compiled snapshot of a catalog, leaving its videos to be decoded on request.
+     * Returns false if the snapshot is missing, corrupt or was compiled from another version of
+     * the catalog. */
+    private boolean openSnapshot(File catalog) {
+        final long start = System.nanoTime();
+        try {
+            this.compiled = CompiledCatalog.open(
+                snapshotFile(catalog).toPath(),
+                catalog.toPath(),
+                this.tags
             );
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        this.metrics.record("open", System.nanoTime() - start);
+        return this.compiled != null;
+    }
+
+    /** Populates the library by reading the catalog line by line. */
+    private void loadScanned(File catalog) throws IOException {
+        final long start = System.nanoTime();
+        try (Scanner scanner = new Scanner(catalog)) {
             while (scanner.hasNextLine()) {
                 String line = scanner.nextLine();
                 String[] split = line.split("\\|");
@@ -33,20 +168,490 @@ public class VideoLibrary {
                 } else
                     tags = new ArrayList<>();
 
-                this.videos.put(id, new Video(title, id, tags));
+                this.videos.put(new Video(title, id, this.tags.intern(tags), this.tags));
             }
-        } catch (FileNotFoundException e) {
-            e.printStackTrace();
+            if (scanner.ioException() != null)
+                throw scanner.ioException();
+        }
+        this.metrics.record("read", System.nanoTime() - start);
+    }
+
+    /** Populates the library by memory-mapping the catalog and parsing it in a single pass,
+     * optionally splitting it into chunks parsed on the common fork-join pool. Chunks are merged
+     * in file order, so a duplicate ID resolves to its last entry exactly as when loading
+     * sequentially. Files beyond the 2GB limit of a single mapping are processed in line-aligned
+     * windows. */
+    private void loadMapped(Path catalog, boolean parallel) throws IOException {
+        try (FileChannel channel = FileChannel.open(catalog, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            long offset = 0;
+            while (offset < size) {
+                long start = System.nanoTime();
+                final long length = Math.min(size - offset, Integer.MAX_VALUE);
+                final MappedByteBuffer buffer =
+                    channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+                int limit = (int) length;
+                if (offset + length < size) {
+                    while (limit > 0 && buffer.get(limit - 1) != '\n')
+                        limit--;
+                    if (limit == 0)
+                        throw new IOException("Catalog line exceeds maximum mapping size");
+                }
+                this.metrics.record("map", System.nanoTime() - start);
+
+                start = System.nanoTime();
+                if (parallel) {
+                    final List<List<Video>> chunks =
+                        CatalogChunkTask.parseAll(
+                            ForkJoinPool.commonPool(),
+                            buffer,
+                            limit,
+                            this.tags
+                        );
+                    this.metrics.record("parse", System.nanoTime() - start);
+
+                    start = System.nanoTime();
+                    for (List<Video> chunk : chunks)
+                        chunk.forEach(this.videos::put);
+                    this.metrics.record("merge", System.nanoTime() - start);
+                } else {
+                    new CatalogParser(buffer, this.tags).parse(
+                        0,
+                        limit,
+                        (title, id, tags) -> this.videos.put(new Video(title, id, tags, this.tags))
+                    );
+                    this.metrics.record("parse", System.nanoTime() - start);
+                }
+                offset += limit;
+            }
+        }
+    }
+
+    /** Returns the dictionary interning the tags of every video in the library. */
+    public TagDictionary getTagDictionary() {
+        return this.tags;
+    }
+
+    /** Returns the timings recorded while the library was being loaded. */
+    public CatalogLoadMetrics getLoadMetrics() {
+        return this.metrics;
+    }
+
+    /** Starts watching the catalog file, reloading the library whenever it changes. Close the
+     * returned watcher to stop. */
+    public CatalogWatcher watch() throws IOException {
+        return new CatalogWatcher(this, this.catalog.toPath());
+    }
+
+    /** Re-reads the catalog file and applies any differences to the library immediately. */
+    public void reload() {
+        this.stageReload();
+        this.applyPending();
+    }
+
+    /** Registers a listener told the ID of each video leaving the catalog on a reload, once the
+     * reload has been applied. */
+    synchronized void onRemoval(Consumer<String> listener) {
+        this.removals.add(listener);
+    }
+
+    /** Re-parses the catalog file and stages the differences against the loaded videos. The
+     * (expensive) parse happens on the calling thread without holding the library's lock. Nothing
+     * is staged if the catalog can't be read, or parses as empty while videos are loaded (as
+     * when it is caught part-way through being replaced), so its videos, along with their flags
+     * and playlist membership, are kept. */
+    void stageReload() {
+        final VideoLibrary fresh = new VideoLibrary(
+            this.loader == CatalogLoader.SNAPSHOT ? CatalogLoader.PARALLEL : this.loader,
+            this.catalog,
+            new HashVideoStore(),
+            this.tags
+        );
+        try {
+            fresh.load();
+        } catch (IOException e) {
+            System.err.printf(
+                "Catalog %s could not be read, keeping loaded videos: %s\n",
+                this.catalog,
+                e
+            );
+            return;
         }
+
+        synchronized (this) {
+            this.materialise();
+            if (fresh.videos.size() == 0 && this.videos.size() > 0) {
+                System.err.printf("Catalog %s is empty, keeping loaded videos\n", this.catalog);
+                return;
+            }
+            final CatalogDiff diff = CatalogDiff.between(this.videos, fresh.videos);
+            this.pending = diff.isEmpty() ? null : diff;
+        }
+    }
+
+    /** Applies a staged reload, if any. This runs at the start of each access so readers only
+     * ever observe a catalog from before or after a reload, never one partially applied. */
+    private synchronized void applyPending() {
+        if (this.pending != null) {
+            final CatalogDiff diff = this.pending;
+            this.pending = null;
+            diff.applyTo(this.videos, VideoIndex.all(this.indexes));
+            diff.getRemoved().forEach(id -> this.removals.forEach(listener -> listener.accept(id)));
+            this.suggestions = null;
+            this.version++;
+        }
+    }
+
+    /** Decodes any videos of an opened snapshot which haven't been requested yet. */
+    private synchronized void materialise() {
+        if (this.compiled != null) {
+            try {
+                this.compiled.forEach(this::putAbsent);
+                this.compiled = null;
+            } catch (UncheckedIOException e) {
+                this.abandonSnapshot(e);
+            }
+        }
+    }
+
+    /** Replaces an opened snapshot found to be corrupt while decoding it with the text catalog,
+     * keeping (along with their flags) any videos already decoded. */
+    private void abandonSnapshot(UncheckedIOException e) {
+        System.err.printf(
+            "Catalog snapshot %s is corrupt, loading %s instead: %s\n",
+            snapshotFile(this.catalog),
+            this.catalog,
+            e.getCause()
+        );
+        this.compiled = null;
+        final VideoLibrary fresh = new VideoLibrary(
+            CatalogLoader.PARALLEL,
+            this.catalog,
+            new HashVideoStore(),
+            this.tags
+        );
+        try {
+            fresh.load();
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+        fresh.videos.forEach(this::putAbsent);
+    }
+
+    private void putAbsent(Video vid) {
+        if (this.videos.get(vid.getVideoId()) == null)
+            this.videos.put(vid);
+    }
+
+    /** Returns the number of videos in the library, without decoding any from a snapshot. */
+    public synchronized int size() {
+        this.applyPending();
+        return this.compiled != null ? this.compiled.size() : this.videos.size();
     }
 
-    /** Returns a read-only collection of videos present in the library. */
-    public List<Video> getVideos() {
-        return new ArrayList<>(this.videos.values());
+    /** Determines whether the library holds no videos. */
+    public boolean isEmpty() {
+        return this.size() == 0;
+    }
+
+    /** Returns an immutable snapshot of the library's current videos. The same snapshot is
+     * returned to every caller until the catalog changes; it is held softly so a store backed by
+     * disk isn't kept resident by an idle snapshot. */
+    public synchronized LibrarySnapshot snapshot() {
+        this.applyPending();
+        LibrarySnapshot snap = this.snapshot != null ? this.snapshot.get() : null;
+        if (snap == null || snap.getVersion() != this.version) {
+            final TitleOrder order = this.titleOrder();
+            snap = new LibrarySnapshot(this.version, this.ordinals.videos(order.ordinals()));
+            this.snapshot = new SoftReference<>(snap);
+        }
+
+        return snap;
+    }
+
+    /** Returns the videos matching a filter sorted by title, scanning the current snapshot in
+     * title order. Large catalogs are scanned in partitions on the common fork-join pool (see
+     * {@link CatalogScanTask}), so the filter must be safe to call concurrently. A
+     * {@link ShardedVideoStore} is instead scanned a shard at a time in parallel through
+     * {@link VideoStore#select}, without building the snapshot. */
+    public List<Video> search(Predicate<? super Video> filter) {
+        return this.search(filter, CatalogScanTask.threshold());
+    }
+
+    /** Returns the videos matching a filter sorted by title, as {@link #search(Predicate)} does
+     * but scanning the snapshot in partitions from a given catalog size. */
+    synchronized List<Video> search(Predicate<? super Video> filter, int threshold) {
+        this.applyPending();
+        if (this.videos instanceof ShardedVideoStore) {
+            this.materialise();
+            return this.videos.select(filter, Video.TITLE_ORDER);
+        }
+
+        return CatalogScanTask.scan(
+            ForkJoinPool.commonPool(),
+            this.snapshot().byTitle(),
+            filter,
+            threshold
+        );
+    }
+
+    /** Returns the ordinals of every video, assigning them on first use. This is always the
+     * first index built, so the others only ever hold videos which have been numbered. */
+    private OrdinalTable ordinals() {
+        if (this.ordinals == null) {
+            this.materialise();
+            this.ordinals = new OrdinalTable(this.videos);
+            this.videos.forEach(this.ordinals::add);
+            this.indexes.add(0, this.ordinals);
+        }
+
+        return this.ordinals;
+    }
+
+    /** Returns every video in title order, maintained incrementally once first built. */
+    private TitleOrder titleOrder() {
+        if (this.titleOrder == null) {
+            this.titleOrder = new TitleOrder(this.ordinals());
+            this.ordinals.forEach(this.titleOrder::add);
+            this.indexes.add(this.titleOrder);
+        }
+
+        return this.titleOrder;
+    }
+
+    /** Returns a read-only list of the unflagged videos whose titles contain a term (compared
+     * case-insensitively) sorted by title. Terms of at least three characters are served from a
+     * trigram index; shorter ones, which it can't narrow down, fall back to scanning the
+     * catalog. Flagged videos are dropped from the matches against the flagged bitmap, and the
+     * results of recent searches are cached. */
+    public synchronized List<Video> searchTitle(String term) {
+        this.applyPending();
+        final String folded = Video.fold(term);
+        final List<Video> cached = this.searchCache.get(SearchCache.TITLE, folded);
+        if (cached != null)
+            return cached;
+
+        final List<Video> vl;
+        if (folded.length() < TrigramIndex.N)
+            vl = this.search(vid -> vid.getFoldedTitle().contains(folded));
+        else
+            vl = this.trigramIndex().search(folded);
+
+        return this.searchCache.put(folded, this.ordinals().withoutFlagged(vl));
+    }
+
+    /** Returns a page of up to {@code limit} unflagged videos whose titles contain a term, in
+     * title order, skipping the first {@code offset} matches or, given a continuation token, the
+     * matches up to and including the video it records. Matches are drawn in order from the
+     * index until the page fills, so however many videos match only the page is held. Returns
+     * null if the token is malformed; throws {@link IllegalArgumentException} unless the limit is
+     * positive and the offset non-negative. */
+    public synchronized SearchPage searchTitle(String term, int limit, int offset, String after) {
+        checkPage(limit, offset);
+        this.applyPending();
+        final String folded = Video.fold(term);
+        final NavigableSet<Integer> all = this.titleOrder().ordinals();
+        final TrigramIndex trigrams = this.trigramIndex();
+        return this.page(
+            from -> folded.length() < TrigramIndex.N
+                ? after(all, from)
+                : trigrams.candidates(folded, from),
+            vid -> vid.getFoldedTitle().contains(folded),
+            limit,
+            offset,
+            after
+        );
+    }
+
+    /** Returns the trigram index, built on first use. */
+    private TrigramIndex trigramIndex() {
+        if (this.trigramIndex == null) {
+            this.trigramIndex = new TrigramIndex(this.ordinals());
+            this.ordinals().forEach(this.trigramIndex::add);
+            this.indexes.add(this.trigramIndex);
+        }
+
+        return this.trigramIndex;
+    }
+
+    /** Returns a read-only list of the unflagged videos carrying a tag (compared
+     * case-insensitively), or matching a boolean {@link TagQuery} such as
+     * {@code #cat AND #animal NOT #funny}, in title order. A single tag is read straight from
+     * its posting list less the flagged bitmap. The results of recent searches are cached.
+     * Throws {@link IllegalArgumentException} if a query is malformed. */
+    public synchronized List<Video> searchTag(String tag) {
+        this.applyPending();
+        final TagQuery query = TagQuery.parse(tag);
+        final List<Video> cached = this.searchCache.get(SearchCache.TAG, query.toString());
+        if (cached != null)
+            return cached;
+
+        final List<Integer> ordinals = query.evaluate(this.tagIndex(), this.tags);
+        return this.searchCache.put(query, this.ordinals.unflagged(ordinals));
+    }
+
+    /** Returns up to {@code n} completions of a prefix (compared case-insensitively) amongst
+     * the titles of unflagged videos and the tags of all videos, in alphabetical order. */
+    public synchronized List<String> suggest(String prefix, int n) {
+        this.applyPending();
+        return this.suggestions().suggest(prefix, n, ordinal -> !this.ordinals.isFlagged(ordinal));
+    }
+
+    /** Returns the completion index, built on first use and again after the catalog changes. */
+    private SuggestIndex suggestions() {
+        if (this.suggestions == null)
+            this.suggestions = new SuggestIndex(this.ordinals(), this.tags);
+
+        return this.suggestions;
+    }
+
+    /** Returns the cache of recent search results, along with its hit and miss counts. */
+    public SearchCache getSearchCache() {
+        return this.searchCache;
+    }
+
+    /** Returns a page of up to {@code limit} unflagged videos carrying a tag, or matching a tag
+     * query, in title order, paged as by {@link #searchTitle(String, int, int, String)}. Returns
+     * null if the token is malformed; throws {@link IllegalArgumentException} if the query is
+     * malformed, or unless the limit is positive and the offset non-negative. */
+    public synchronized SearchPage searchTag(String tag, int limit, int offset, String after) {
+        checkPage(limit, offset);
+        this.applyPending();
+        final TagQuery query = TagQuery.parse(tag);
+        final TagIndex index = this.tagIndex();
+        return this.page(
+            from -> query.matches(index, this.tags, from),
+            vid -> true,
+            limit,
+            offset,
+            after
+        );
+    }
+
+    /** Returns the tag index, built on first use. */
+    private TagIndex tagIndex() {
+        if (this.tagIndex == null) {
+            this.tagIndex = new TagIndex(this.tags, this.ordinals());
+            this.ordinals().forEach(this.tagIndex::add);
+            this.indexes.add(this.tagIndex);
+        }
+
+        return this.tagIndex;
+    }
+
+    /** Collects a page of the unflagged videos which pass a filter from a title-ordered sequence
+     * of ordinals, given as a function returning an iterator over those after a given ordinal
+     * (or all of them given null). One video beyond the page is looked for, only to tell whether
+     * another page follows. */
+    private SearchPage page(
+        Function<Integer, Iterator<Integer>> ordered,
+        Predicate<? super Video> filter,
+        int limit,
+        int offset,
+        String after
+    ) {
+        final OrdinalTable table = this.ordinals();
+        Integer from = null;
+        int start = offset;
+        if (after != null) {
+            final String[] cursor = SearchPage.decode(after);
+            if (cursor == null)
+                return null;
+
+            final Video last = new Video(cursor[1], cursor[2], TagDictionary.NONE, this.tags);
+            from = table.probe(last);
+            start += Integer.parseInt(cursor[0]);
+        }
+
+        final List<Video> vl = new ArrayList<>(Math.min(limit, 64));
+        int skip = offset;
+        final Iterator<Integer> ordinals = ordered.apply(from);
+        while (ordinals.hasNext()) {
+            final int ordinal = ordinals.next();
+            if (table.isFlagged(ordinal))
+                continue;
+            final Video vid = table.video(ordinal);
+            if (!filter.test(vid))
+                continue;
+            if (skip > 0)
+                skip--;
+            else if (vl.size() == limit)
+                return new SearchPage(vl, start, true);
+            else
+                vl.add(vid);
+        }
+
+        return new SearchPage(vl, start, false);
+    }
+
+    private static void checkPage(int limit, int offset) {
+        if (limit < 1)
+            throw new IllegalArgumentException("Page limit must be positive: " + limit);
+        if (offset < 0)
+            throw new IllegalArgumentException("Page offset must be non-negative: " + offset);
+    }
+
+    /** Returns an iterator over the ordinals of a set after a given ordinal, or all of them given
+     * null. */
+    private static Iterator<Integer> after(NavigableSet<Integer> ordinals, Integer from) {
+        return (from == null ? ordinals : ordinals.tailSet(from, false)).iterator();
+    }
+
+    /** Returns an unflagged video chosen uniformly at random; null if there are none. */
+    public synchronized Video sample(Random random) {
+        this.applyPending();
+        return this.ordinals().sample(random);
+    }
+
+    /** Returns the flagged videos sorted by title, read from the flagged bitmap. */
+    public synchronized List<Video> getFlagged() {
+        this.applyPending();
+        final List<Video> vl = this.ordinals().flagged();
+        vl.sort(Video.TITLE_ORDER);
+        return vl;
+    }
+
+    /** Marks a video as "flagged" with a given reason if supplied. */
+    public synchronized void flag(Video vid, String reason) {
+        vid.flag(reason);
+        this.ordinals().setFlagged(vid, true);
+        this.searchCache.invalidate(vid);
+    }
+
+    /** Removes a video's "flag". */
+    public synchronized void unflag(Video vid) {
+        vid.unflag();
+        this.ordinals().setFlagged(vid, false);
+        this.searchCache.invalidate(vid);
+    }
+
+    /** Returns a new, modifiable copy of the videos present in the library. Prefer
+     * {@link #snapshot()}, which avoids the copy. */
+    public synchronized List<Video> getVideos() {
+        this.applyPending();
+        this.materialise();
+        final List<Video> vl = new ArrayList<>(this.videos.size());
+        this.videos.forEach(vl::add);
+        return vl;
     }
 
     /** Retrieves a video from the library; returns null if not found. */
-    public Video getVideo(String id) {
-        return this.videos.get(id);
+    public synchronized Video getVideo(String id) {
+        this.applyPending();
+        Video vid = this.videos.get(id);
+        if (vid == null && this.compiled != null) {
+            try {
+                vid = this.compiled.find(id);
+            } catch (UncheckedIOException e) {
+                this.abandonSnapshot(e);
+                return this.videos.get(id);
+            }
+            if (vid != null) {
+                this.videos.put(vid);
+                vid = this.videos.get(id);
+            }
+        }
+
+        return vid;
     }
 }
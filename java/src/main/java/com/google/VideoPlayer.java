@@ -1,34 +1,232 @@
 
 package com.google;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
 
 /** The class representing the video player simulator. */
-public class VideoPlayer {
+public class VideoPlayer implements AutoCloseable {
     private final VideoLibrary library;
 
     private Video current = null;                       // Added as part of PLAY
     private boolean paused = false;                     // Added as part of PAUSE
-    private final List<VideoPlaylist> playlists;        // Added as part of CREATE_PLAYLIST
+    private final PlaylistRegistry playlists;           // Added as part of CREATE_PLAYLIST
+    private final PlayerJournal journal;                // Null unless state is persisted
+    private CatalogWatcher watcher = null;              // Null unless the catalog is watched
 
     public VideoPlayer() {
-        this.library = new VideoLibrary();
-        this.playlists = new ArrayList<>();
+        this(
+            new VideoLibrary(),
+            System.getProperty("videos.state") == null
+                ? null
+                : Paths.get(System.getProperty("videos.state"))
+        );
+        if (Boolean.getBoolean("videos.reload")) {
+            try {
+                this.watcher = this.library.watch();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /** Creates a player over a given library, restoring its playlists and flags from (and
+     * recording any changes to them in) the journal held in a directory, unless null. Throws if
+     * the journal cannot be opened, rather than run without the persistence asked for. */
+    VideoPlayer(VideoLibrary library, Path state) {
+        this.library = library;
+        this.playlists = new PlaylistRegistry();
+        this.library.onRemoval(this::evict);
+        if (state == null)
+            this.journal = null;
+        else {
+            try {
+                this.journal = new PlayerJournal(state, this::replay, this::state);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Player state could not be opened: " + state, e);
+            }
+        }
+    }
+
+    /** Stops watching the catalog and closes the journal, if either is open. */
+    @Override
+    public void close() {
+        try {
+            if (this.watcher != null)
+                this.watcher.close();
+            if (this.journal != null)
+                this.journal.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /** Records a change to the playlists or flags in the journal, if any, before it is made.
+     * Returns false if it could not be recorded, in which case the change must not be made. */
+    private boolean record(String... command) {
+        return this.record(Collections.singletonList(command));
+    }
+
+    /** Records a batch of changes to the playlists or flags in the journal, if any, before they
+     * are made. Returns false if they could not be recorded, in which case none may be made. */
+    private boolean record(List<String[]> commands) {
+        if (this.journal != null) {
+            try {
+                this.journal.append(commands);
+            } catch (IOException e) {
+                e.printStackTrace();
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /** Compacts the journal, if any and due, once the changes recorded have been made. */
+    private void checkpoint() {
+        if (this.journal != null) {
+            try {
+                this.journal.checkpoint();
+            } catch (IOException e) {
+                e.printStackTrace();    // The changes are still in the log, so nothing is lost
+            }
+        }
+    }
+
+    /** Removes a video (by ID) which has left the catalog from every playlist holding it,
+     * recording each removal in the journal first, so that a restart can't put it back should the
+     * video return to the catalog. */
+    private void evict(String id) {
+        final List<String[]> commands = new ArrayList<>();
+        for (VideoPlaylist vp : this.playlists.containing(id))
+            commands.add(new String[] {"REMOVE_FROM_PLAYLIST", vp.getName(), id});
+        if (commands.isEmpty())
+            return;
+
+        this.record(commands);          // The video is gone whether or not this could be saved
+        this.playlists.evict(id);
+        this.checkpoint();
+    }
+
+    /** Applies a command recorded in the journal without output, skipping any made moot by a
+     * change to the catalog. */
+    private void replay(String[] command) {
+        final VideoPlaylist vp;
+        final Video vid;
+        switch (command[0]) {
+            case "CREATE_PLAYLIST":
+                this.playlists.create(command[1]);
+                break;
+            case "ADD_TO_PLAYLIST":
+                vp = this.retrievePlaylist(command[1]);
+                vid = this.library.getVideo(command[2]);
+                if (vp != null && vid != null)
+                    this.playlists.add(vp, vid);
+                break;
+            case "REMOVE_FROM_PLAYLIST":
+                vp = this.retrievePlaylist(command[1]);
+                vid = this.library.getVideo(command[2]);
+                if (vp != null && vid != null)
+                    this.playlists.remove(vp, vid);
+                break;
+            case "CLEAR_PLAYLIST":
+                vp = this.retrievePlaylist(command[1]);
+                if (vp != null)
+                    this.playlists.clear(vp);
+                break;
+            case "DELETE_PLAYLIST":
+                this.playlists.remove(command[1]);
+                break;
+            case "CLONE_PLAYLIST":
+                vp = this.retrievePlaylist(command[1]);
+                if (vp != null)
+                    this.playlists.copy(vp, command[2]);
+                break;
+            case "FLAG_VIDEO":
+                vid = this.library.getVideo(command[1]);
+                if (vid != null && !vid.isFlagged())
+                    this.library.flag(vid, command[2]);
+                break;
+            case "ALLOW_VIDEO":
+                vid = this.library.getVideo(command[1]);
+                if (vid != null && vid.isFlagged())
+                    this.library.unflag(vid);
+                break;
+        }
+    }
+
+    /** Returns the commands recreating every playlist and flag, from which the journal is
+     * compacted. A clone is recreated by cloning the playlist it was copied from, written out
+     * first, and then applying only the changes made to either since. */
+    private List<String[]> state() {
+        final List<String[]> commands = new ArrayList<>();
+        final Set<VideoPlaylist> written = new HashSet<>();
+        for (VideoPlaylist vp : this.playlists.sorted()) {
+            final Deque<VideoPlaylist> chain = new ArrayDeque<>();     // Sources before clones
+            VideoPlaylist pl = vp;
+            while (pl != null && written.add(pl)) {
+                chain.push(pl);
+                pl = this.playlists.source(pl);
+            }
+            while (!chain.isEmpty())
+                this.state(chain.pop(), commands);
+        }
+        for (Video vid : this.library.getFlagged())
+            commands.add(new String[] {"FLAG_VIDEO", vid.getVideoId(), vid.getFlag()});
+
+        return commands;
+    }
+
+    /** Appends the commands recreating a playlist, given the playlist it was cloned from (if any)
+     * has been recreated already. A clone keeps the longest run of videos at its start which its
+     * source holds in the same order; the source's other videos are removed, and the clone's
+     * remaining videos added back in order. */
+    private void state(VideoPlaylist vp, List<String[]> commands) {
+        final String name = vp.getName();
+        final VideoPlaylist source = this.playlists.source(vp);
+        if (source == null) {
+            commands.add(new String[] {"CREATE_PLAYLIST", name});
+            for (Video vid : vp.getVideos())
+                commands.add(new String[] {"ADD_TO_PLAYLIST", name, vid.getVideoId()});
+            return;
+        }
+
+        final Set<String> kept = new HashSet<>();
+        final List<String[]> added = new ArrayList<>();
+        int last = -1;                                  // Source position of the last kept video
+        for (Video vid : vp.getVideos()) {
+            final int at = added.isEmpty() ? source.indexOf(vid) : -1;
+            if (at > last) {
+                kept.add(vid.getVideoId());
+                last = at;
+            } else
+                added.add(new String[] {"ADD_TO_PLAYLIST", name, vid.getVideoId()});
+        }
+
+        commands.add(new String[] {"CLONE_PLAYLIST", source.getName(), name});
+        for (Video vid : source.getVideos()) {
+            if (!kept.contains(vid.getVideoId()))
+                commands.add(new String[] {"REMOVE_FROM_PLAYLIST", name, vid.getVideoId()});
+        }
+        commands.addAll(added);
     }
 
     /** Returns the number of videos initially available in the library. */
     public void numberOfVideos() {
-        System.out.printf("%s videos in the library\n", this.library.getVideos().size());
+        System.out.printf("%s videos in the library\n", this.library.size());
     }
 
     /** Displays (by title, natural order) each {@link Video} in the library, given it is not
      * "flagged". */
     public void showAllVideos() {
-        if (!this.library.getVideos().isEmpty()) {
-            final List<Video> vl = this.library.getVideos();
-            vl.sort(Comparator.comparing(Video::getTitle));
+        final LibrarySnapshot snap = this.library.snapshot();
+        if (!snap.isEmpty()) {
             System.out.println("Here's a list of all available videos:");
-            vl.forEach(
+            snap.byTitle().forEach(
                 vid -> {
                     if (vid.isFlagged())
                         System.out.printf("\t%s - FLAGGED (reason: %s)\n", vid, vid.getFlag());
@@ -41,7 +239,7 @@ public class VideoPlayer {
 
     /** Plays a {@link Video} given it is not "flagged". */
     public void playVideo(String id) {
-        if (!this.library.getVideos().isEmpty()) {
+        if (!this.library.isEmpty()) {
             final Video vid = this.library.getVideo(id);
             if (vid == null)
                 System.out.println("Cannot play video: Video does not exist");
@@ -76,22 +274,11 @@ public class VideoPlayer {
 
     /** Plays a random {@link Video} given it is not "flagged". */
     public void playRandomVideo() {
-        if (this.library.getVideos().isEmpty())
+        final Video vid = this.library.isEmpty() ? null : this.library.sample(new Random());
+        if (vid == null)
             System.out.println("No videos available");
-        else {
-            final List<String> uf = new ArrayList<>();
-            this.library.getVideos().forEach(
-                vid -> {
-                    if (!vid.isFlagged())
-                        uf.add(vid.getVideoId());
-                }
-            );
-
-            if (uf.isEmpty())
-                System.out.println("No videos available");
-            else
-                this.playVideo(uf.get(new Random().nextInt(uf.size())));
-        }
+        else
+            this.playVideo(vid.getVideoId());
     }
 
     /** Pauses the {@link Video} currently playing. */
@@ -135,12 +322,7 @@ public class VideoPlayer {
 
     /** Searches for/retrieves a {@link VideoPlaylist} by name. */
     private VideoPlaylist retrievePlaylist(String name) {
-        for (VideoPlaylist pl : this.playlists) {
-            if (name.equalsIgnoreCase(pl.getName()))
-                return pl;
-        }
-
-        return null;
+        return this.playlists.get(name);
     }
 
     /** Creates a new {@link VideoPlaylist}, assigning it a given (unique) name. */
@@ -149,8 +331,11 @@ public class VideoPlayer {
             System.out.println(
                 "Cannot create playlist: A playlist with the same name already exists"
             );
-        } else {
-            this.playlists.add(new VideoPlaylist(name));
+        } else if (!this.record("CREATE_PLAYLIST", name))
+            System.out.println("Cannot create playlist: Changes could not be saved");
+        else {
+            this.playlists.create(name);
+            this.checkpoint();
             System.out.printf("Successfully created new playlist: %s\n", name);
         }
     }
@@ -173,15 +358,106 @@ public class VideoPlayer {
                         vid.getFlag()
                     );
                 } else {
-                    final List<Video> pl = vp.getVideos();
-                    if (!pl.contains(vid)) {
-                        pl.add(vid);
-                        System.out.printf("Added video to %s: %s\n", name, vid.getTitle());
-                    } else
+                    if (vp.contains(vid))
                         System.out.printf("Cannot add video to %s: Video already added\n", name);
+                    else if (!this.record("ADD_TO_PLAYLIST", vp.getName(), vid.getVideoId())) {
+                        System.out.printf(
+                            "Cannot add video to %s: Changes could not be saved\n",
+                            name
+                        );
+                    } else {
+                        this.playlists.add(vp, vid);
+                        this.checkpoint();
+                        System.out.printf("Added video to %s: %s\n", name, vid.getTitle());
+                    }
+                }
+            }
+        }
+    }
+
+    /** Adds a batch of {@link Video}s (by ID) to a named, existing {@link VideoPlaylist},
+     * skipping any which don't exist, are "flagged" or are already present, and summarising the
+     * outcome in a single line. */
+    public void addVideosToPlaylist(String name, List<String> ids) {
+        final VideoPlaylist vp = this.retrievePlaylist(name);
+        if (vp == null)
+            System.out.printf("Cannot add videos to %s: Playlist does not exist\n", name);
+        else
+            this.addAll(vp, name, ids, "Cannot add videos to %s");
+    }
+
+    /** Adds the {@link Video}s whose IDs are listed (separated by whitespace) in a file to a named
+     * {@link VideoPlaylist}, creating it if it doesn't exist, in the same way as
+     * {@link #addVideosToPlaylist(String, List)}. */
+    public void importPlaylist(String name, String file) {
+        final List<String> ids = new ArrayList<>();
+        try {
+            for (String line : Files.readAllLines(Paths.get(file))) {
+                for (String id : line.strip().split("\\s+")) {
+                    if (!id.isEmpty())
+                        ids.add(id);
                 }
             }
+        } catch (IOException e) {
+            System.out.printf("Cannot import playlist %s: File could not be read\n", name);
+            return;
         }
+
+        this.addAll(this.retrievePlaylist(name), name, ids, "Cannot import playlist %s");
+    }
+
+    /** Adds each {@link Video} (by ID) of a batch to a {@link VideoPlaylist}, creating it first if
+     * null, then displays how many were added and why any were skipped. The additions are
+     * recorded in the journal as one batch before any is made; if they can't be, none are made
+     * and the failure is displayed after a given prefix instead. */
+    private void addAll(VideoPlaylist vp, String name, List<String> ids, String failure) {
+        final List<String[]> commands = new ArrayList<>();
+        final String key = vp == null ? name : vp.getName();
+        if (vp == null)
+            commands.add(new String[] {"CREATE_PLAYLIST", name});
+
+        final List<Video> additions = new ArrayList<>();
+        final Set<String> batch = new HashSet<>();
+        int present = 0, flagged = 0, missing = 0;
+        for (String id : ids) {
+            final Video vid = this.library.getVideo(id);
+            if (vid == null)
+                missing++;
+            else if (vid.isFlagged())
+                flagged++;
+            else if (vp != null && vp.contains(vid) || !batch.add(vid.getVideoId()))
+                present++;
+            else {
+                commands.add(new String[] {"ADD_TO_PLAYLIST", key, vid.getVideoId()});
+                additions.add(vid);
+            }
+        }
+        if (!this.record(commands)) {
+            System.out.printf(failure + ": Changes could not be saved\n", name);
+            return;
+        }
+
+        final VideoPlaylist pl = vp == null ? this.playlists.create(name) : vp;
+        for (Video vid : additions)
+            this.playlists.add(pl, vid);
+        this.checkpoint();
+
+        final int added = additions.size();
+
+        final List<String> skipped = new ArrayList<>(3);
+        if (present > 0)
+            skipped.add(present + " already added");
+        if (flagged > 0)
+            skipped.add(flagged + " flagged");
+        if (missing > 0)
+            skipped.add(missing + " not found");
+        System.out.printf(
+            "Added %d %s to %s%s\n",
+            added,
+            added == 1 ? "video" : "videos",
+            name,
+            skipped.isEmpty() ? "" : " (skipped " + String.join(", ", skipped) + ")"
+        );
     }
 
     /** Displays (by name, natural order) each {@link VideoPlaylist} currently in the library. */
@@ -190,8 +466,7 @@ public class VideoPlayer {
             System.out.println("No playlists exist yet");
         else {
             System.out.println("Showing all playlists:");
-            this.playlists.sort(Comparator.comparing(VideoPlaylist::getName));
-            this.playlists.forEach(pl -> System.out.printf("\t%s\n", pl.getName()));
+            this.playlists.sorted().forEach(pl -> System.out.printf("\t%s\n", pl.getName()));
         }
     }
 
@@ -230,27 +505,52 @@ public class VideoPlayer {
             if (vid == null)
                 System.out.printf("Cannot remove video from %s: Video does not exist\n", name);
             else {
-                final List<Video> pl = vp.getVideos();
-                if (!pl.contains(vid)) {
+                if (!vp.contains(vid)) {
                     System.out.printf(
                         "Cannot remove video from %s: Video is not in playlist\n",
                         name
                     );
+                } else if (!this.record("REMOVE_FROM_PLAYLIST", vp.getName(), vid.getVideoId())) {
+                    System.out.printf(
+                        "Cannot remove video from %s: Changes could not be saved\n",
+                        name
+                    );
                 } else {
-                    pl.remove(vid);
+                    this.playlists.remove(vp, vid);
+                    this.checkpoint();
                     System.out.printf("Removed video from %s: %s\n", name, vid.getTitle());
                 }
             }
         }
     }
 
+    /** Displays (by name, natural order) each {@link VideoPlaylist} containing a {@link Video}
+     * (by ID), given it exists. */
+    public void showPlaylistsFor(String id) {
+        final Video vid = this.library.getVideo(id);
+        if (vid == null)
+            System.out.println("Cannot show playlists for video: Video does not exist");
+        else {
+            final Collection<VideoPlaylist> pls = this.playlists.containing(vid.getVideoId());
+            if (pls.isEmpty())
+                System.out.printf("No playlists contain video: %s\n", vid.getTitle());
+            else {
+                System.out.printf("Showing playlists containing: %s\n", vid.getTitle());
+                pls.forEach(pl -> System.out.printf("\t%s\n", pl.getName()));
+            }
+        }
+    }
+
     /** Removes all videos from a named {@link VideoPlaylist} given it exists. */
     public void clearPlaylist(String name) {
         final VideoPlaylist vp = this.retrievePlaylist(name);
         if (vp == null)
             System.out.printf("Cannot clear playlist %s: Playlist does not exist\n", name);
+        else if (!this.record("CLEAR_PLAYLIST", vp.getName()))
+            System.out.printf("Cannot clear playlist %s: Changes could not be saved\n", name);
         else {
-            vp.getVideos().clear();
+            this.playlists.clear(vp);
+            this.checkpoint();
             System.out.printf("Successfully removed all videos from %s\n", name);
         }
     }
@@ -259,63 +559,127 @@ public class VideoPlayer {
     public void deletePlaylist(String name) {
         if (this.retrievePlaylist(name) == null)
             System.out.printf("Cannot delete playlist %s: Playlist does not exist\n", name);
+        else if (!this.record("DELETE_PLAYLIST", name))
+            System.out.printf("Cannot delete playlist %s: Changes could not be saved\n", name);
         else {
-            this.playlists.removeIf(pl -> name.equalsIgnoreCase(pl.getName()));
+            this.playlists.remove(name);
+            this.checkpoint();
             System.out.printf("Deleted playlist: %s\n", name);
         }
     }
 
+    /** Creates a new {@link VideoPlaylist} with a given (unique) name holding the same videos as a
+     * named, existing one. The copy shares the original's structure, so it takes O(1) time and
+     * next to no memory until either is changed. */
+    public void clonePlaylist(String source, String name) {
+        final VideoPlaylist vp = this.retrievePlaylist(source);
+        if (vp == null)
+            System.out.printf("Cannot clone playlist %s: Playlist does not exist\n", source);
+        else if (this.retrievePlaylist(name) != null) {
+            System.out.printf(
+                "Cannot clone playlist %s: A playlist with the same name as %s already exists\n",
+                source,
+                name
+            );
+        } else if (!this.record("CLONE_PLAYLIST", vp.getName(), name))
+            System.out.printf("Cannot clone playlist %s: Changes could not be saved\n", source);
+        else {
+            this.playlists.copy(vp, name);
+            this.checkpoint();
+            System.out.printf("Successfully cloned playlist %s to %s\n", source, name);
+        }
+    }
+
     /** Searches for/retrieves a {@link Video} either by title or tag. Includes an option to play
      * once retrieved. */
     private void searchVideosBy(String term, int func) {
-        if (!this.library.getVideos().isEmpty()) {
-            final List<Video> vl = new ArrayList<>();
-            if (func == 1) {
-                this.library.getVideos().forEach(
-                    vid -> {
-                        if (!vid.isFlagged()) {
-                            if (vid.getTitle().toLowerCase().contains(term.toLowerCase()))
-                                vl.add(vid);
-                        }
-                    }
-                );
-            } else {
-                this.library.getVideos().forEach(
-                    vid -> {
-                        if (!vid.isFlagged()) {
-                            if (vid.tagExists(term))
-                                vl.add(vid);
-                        }
-                    }
-                );
+        if (!this.library.isEmpty()) {
+            final List<Video> vl;
+            try {
+                if (func == 1)
+                    vl = this.library.searchTitle(term);
+                else
+                    vl = this.library.searchTag(term);
+            } catch (IllegalArgumentException e) {
+                System.out.printf("Cannot search videos: %s\n", e.getMessage());
+                return;
             }
 
             if (vl.isEmpty())
                 System.out.printf("No search results for %s\n", term);
             else {
-                vl.sort(Comparator.comparing(Video::getTitle));
                 System.out.printf("Here are the results for %s:\n", term);
                 for (int i = 1; i <= vl.size(); i++)
                     System.out.printf("\t%d) %s\n", i, vl.get(i - 1));
 
-                System.out.println(
-                    "Would you like to play any of the above? If yes, specify the number of the " +
-                    "video.\nIf your answer is not a valid number, we will assume it's a no."
-                );
+                this.offerToPlay(vl, 0);
+            }
+        } else
+            System.out.println("No videos available");
+    }
 
-                int n;
-                try {
-                    n = new Scanner(System.in).nextInt();
-                } catch (InputMismatchException e) {
-                    n = 0;
+    /** Searches for/retrieves a page of at most {@code limit} {@link Video}s either by title or
+     * tag, starting after {@code offset} results or from a continuation token. Results are
+     * numbered by their rank among all results, and a command fetching the next page is shown
+     * when there is one. */
+    private void searchVideosBy(String term, int func, int limit, int offset, String after) {
+        if (!this.library.isEmpty()) {
+            final SearchPage page;
+            try {
+                if (func == 1)
+                    page = this.library.searchTitle(term, limit, offset, after);
+                else
+                    page = this.library.searchTag(term, limit, offset, after);
+            } catch (IllegalArgumentException e) {
+                System.out.printf("Cannot search videos: %s\n", e.getMessage());
+                return;
+            }
+
+            if (page == null)
+                System.out.println("Cannot search videos: Continuation token is invalid");
+            else if (page.isEmpty() && page.getOffset() == 0)
+                System.out.printf("No search results for %s\n", term);
+            else if (page.isEmpty())
+                System.out.printf("No more search results for %s\n", term);
+            else {
+                final List<Video> vl = page.getVideos();
+                System.out.printf("Here are the results for %s:\n", term);
+                for (int i = 1; i <= vl.size(); i++)
+                    System.out.printf("\t%d) %s\n", page.getOffset() + i, vl.get(i - 1));
+                if (page.getToken() != null) {
+                    System.out.printf(
+                        "More results: %s %s LIMIT %d AFTER %s\n",
+                        func == 1 ? "SEARCH_VIDEOS" : "SEARCH_VIDEOS_WITH_TAG",
+                        term,
+                        limit,
+                        page.getToken()
+                    );
                 }
-                if (n > 0 && n <= vl.size())
-                    this.playVideo(vl.get(n - 1).getVideoId());
+
+                this.offerToPlay(vl, page.getOffset());
             }
         } else
             System.out.println("No videos available");
     }
 
+    /** Prompts for the number of a listed {@link Video} to play, the first being numbered one
+     * past a given offset. */
+    private void offerToPlay(List<Video> vl, int offset) {
+        System.out.println(
+            "Would you like to play any of the above? If yes, specify the number of the " +
+            "video.\nIf your answer is not a valid number, we will assume it's a no."
+        );
+
+        int n;
+        try {
+            n = new Scanner(System.in).nextInt() - offset;
+        } catch (InputMismatchException e) {
+            n = 0;
+        }
+        if (n > 0 && n <= vl.size())
+            this.playVideo(vl.get(n - 1).getVideoId());
+    }
+
     /** Calls {@link #searchVideosBy(String, int)} with a given title supplied to search for a
      * {@link Video}. */
     public void searchVideos(String term) {
@@ -328,19 +692,51 @@ public class VideoPlayer {
         this.searchVideosBy(tag, 2);
     }
 
+    /** Calls {@link #searchVideosBy(String, int, int, int, String)} with a given title supplied
+     * to search for a page of {@link Video}s. */
+    public void searchVideos(String term, int limit, int offset, String after) {
+        this.searchVideosBy(term, 1, limit, offset, after);
+    }
+
+    /** Calls {@link #searchVideosBy(String, int, int, int, String)} with a given tag supplied to
+     * search for a page of {@link Video}s. */
+    public void searchVideosWithTag(String tag, int limit, int offset, String after) {
+        this.searchVideosBy(tag, 2, limit, offset, after);
+    }
+
+    /** Displays up to {@code n} titles or tags completing a given prefix. */
+    public void suggest(String prefix, int n) {
+        final List<String> completions = this.library.suggest(prefix, n);
+        if (completions.isEmpty())
+            System.out.printf("No suggestions for %s\n", prefix);
+        else {
+            System.out.printf("Here are the suggestions for %s:\n", prefix);
+            completions.forEach(completion -> System.out.printf("\t%s\n", completion));
+        }
+    }
+
+    /** Displays how often searches have been answered from the library's cache of results. */
+    public void showSearchStats() {
+        System.out.println(this.library.getSearchCache());
+    }
+
     /** Marks a {@link Video} (by ID) as "flagged" supplying a reason, given it exists. */
     public void flagVideo(String id, String reason) {
-        if (!this.library.getVideos().isEmpty()) {
+        if (!this.library.isEmpty()) {
             final Video vid = this.library.getVideo(id);
             if (vid == null)
                 System.out.println("Cannot flag video: Video does not exist");
             else {
+                final String flag = Objects.requireNonNullElse(reason, "Not supplied");
                 if (vid.isFlagged())
                     System.out.println("Cannot flag video: Video is already flagged");
+                else if (!this.record("FLAG_VIDEO", vid.getVideoId(), flag))
+                    System.out.println("Cannot flag video: Changes could not be saved");
                 else {
-                    if (this.current == vid)
+                    if (vid.equals(this.current))
                         this.stopVideo();
-                    vid.flag(reason);
+                    this.library.flag(vid, flag);
+                    this.checkpoint();
                     System.out.printf(
                         "Successfully flagged video: %s (reason: %s)\n",
                         vid.getTitle(),
@@ -356,21 +752,38 @@ public class VideoPlayer {
         this.flagVideo(id, null);
     }
 
+    /** Displays (by title, natural order) each "flagged" {@link Video} with its reason. */
+    public void showFlaggedVideos() {
+        final List<Video> vl = this.library.getFlagged();
+        if (vl.isEmpty())
+            System.out.println("No flagged videos");
+        else {
+            System.out.println("Here's a list of flagged videos:");
+            vl.forEach(
+                vid -> System.out.printf("\t%s - FLAGGED (reason: %s)\n", vid, vid.getFlag())
+            );
+        }
+    }
+
     /** Removes the "flag" from a {@link Video} (by ID) given it exists and is "flagged". */
     public void allowVideo(String id) {
-        if (!this.library.getVideos().isEmpty()) {
+        if (!this.library.isEmpty()) {
             final Video vid = this.library.getVideo(id);
             if (vid == null)
                 System.out.println("Cannot remove flag from video: Video does not exist");
             else {
-                if (vid.isFlagged()) {
-                    vid.unflag();
+                if (!vid.isFlagged())
+                    System.out.println("Cannot remove flag from video: Video is not flagged");
+                else if (!this.record("ALLOW_VIDEO", vid.getVideoId()))
+                    System.out.println("Cannot remove flag from video: Changes could not be saved");
+                else {
+                    this.library.unflag(vid);
+                    this.checkpoint();
                     System.out.printf(
                         "Successfully removed flag from video: %s\n",
                         vid.getTitle()
                     );
-                } else
-                    System.out.println("Cannot remove flag from video: Video is not flagged");
+                }
             }
         }
     }
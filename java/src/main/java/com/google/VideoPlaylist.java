@@ -1,17 +1,29 @@
-
 package com.google;
 
-import java.util.ArrayList;
+import java.util.AbstractList;
+import java.util.Iterator;
 import java.util.List;
 
-/** The class representing a video playlist entity. */
+/** The class representing a video playlist entity. Videos are held in insertion order in the slots
+ * of a {@link SlotTrie}, indexed by a {@link HashTrie} of video ID to slot, so adding, removing
+ * and checking for a video each take one O(log n) trie walk, a handful of steps at any realistic
+ * size. A removal empties its slot, and the slots are only renumbered (closing up the gaps) once
+ * gaps outnumber videos, which is O(1) amortised per removal. Finding the video at a position,
+ * or a video's position, takes one O(log n) descent counting filled slots, with no renumbering.
+ *
+ * <p>Both tries are persistent, so {@link #copy(String)} clones a playlist in O(1), the clone
+ * sharing all of its structure with the original. Editing either afterwards copies only the few
+ * nodes on the paths the edit touches, so many near-identical copies of a playlist take little
+ * more memory than one. */
 public class VideoPlaylist {
     private final String name;
-    private final List<Video> videos;
+    private final String key;                   // Folded name, compared by lookups
+    private SlotTrie<Video> slots = new SlotTrie<>();           // Videos in insertion order
+    private HashTrie<String, Integer> positions = new HashTrie<>();     // Video ID -> slot
 
     public VideoPlaylist(String name) {
         this.name = name;
-        this.videos = new ArrayList<>();
+        this.key = Video.fold(name);
     }
 
     /** Returns the playlist's name. */
@@ -19,8 +31,117 @@ public class VideoPlaylist {
         return this.name;
     }
 
-    /** Returns a read-only collection of videos present in the playlist. */
+    /** Returns the playlist's name folded by {@link Video#fold(String)}, under which it is looked
+     * up regardless of case. */
+    String getKey() {
+        return this.key;
+    }
+
+    /** Returns a playlist with a given name holding the same videos, which shares this one's
+     * structure until either changes. */
+    VideoPlaylist copy(String name) {
+        final VideoPlaylist pl = new VideoPlaylist(name);
+        pl.slots = this.slots.fork();
+        pl.positions = this.positions.fork();
+        return pl;
+    }
+
+    /** Returns a read-only collection of videos present in the playlist, in the order they were
+     * added. */
     public List<Video> getVideos() {
-        return this.videos;
+        return new AbstractList<>() {
+            @Override
+            public Video get(int index) {
+                return VideoPlaylist.this.get(index);
+            }
+
+            @Override
+            public Iterator<Video> iterator() {
+                return VideoPlaylist.this.slots.iterator();
+            }
+
+            @Override
+            public int size() {
+                return VideoPlaylist.this.size();
+            }
+        };
+    }
+
+    /** Appends a video unless already present; returns whether it was added. */
+    public boolean add(Video vid) {
+        if (this.positions.get(vid.getVideoId()) != null)
+            return false;
+
+        this.positions.put(vid.getVideoId(), this.slots.append(vid));
+        return true;
+    }
+
+    /** Removes a video if present; returns whether it was removed. */
+    public boolean remove(Video vid) {
+        return this.remove(vid.getVideoId());
+    }
+
+    /** Removes a video (by ID) if present; returns whether it was removed. */
+    boolean remove(String id) {
+        final Integer slot = this.positions.remove(id);
+        if (slot == null)
+            return false;
+
+        this.slots.empty(slot);
+        if (this.slots.end() - this.size() > Math.max(32, this.size()))
+            this.compact();
+        return true;
+    }
+
+    /** Determines whether a video is present. */
+    public boolean contains(Video vid) {
+        return this.contains(vid.getVideoId());
+    }
+
+    /** Determines whether a video (by ID) is present. */
+    boolean contains(String id) {
+        return this.positions.get(id) != null;
+    }
+
+    /** Returns the video at a given position (0-based, in insertion order), in O(log n). */
+    public Video get(int index) {
+        if (index < 0 || index >= this.size())
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds");
+
+        return this.slots.select(index);
+    }
+
+    /** Returns the position of a video (0-based, in insertion order), or -1 if absent, in
+     * O(log n). */
+    public int indexOf(Video vid) {
+        final Integer slot = this.positions.get(vid.getVideoId());
+        return slot == null ? -1 : this.slots.rank(slot);
+    }
+
+    /** Removes every video. */
+    public void clear() {
+        this.slots = new SlotTrie<>();
+        this.positions = new HashTrie<>();
+    }
+
+    /** Returns the number of videos present. */
+    public int size() {
+        return this.positions.size();
+    }
+
+    /** Determines whether the playlist holds no videos. */
+    public boolean isEmpty() {
+        return this.size() == 0;
+    }
+
+    /** Renumbers the videos into consecutive slots, closing up the gaps left by removals. */
+    private void compact() {
+        final SlotTrie<Video> slots = new SlotTrie<>();
+        final HashTrie<String, Integer> positions = new HashTrie<>();
+        this.slots.iterator().forEachRemaining(
+            vid -> positions.put(vid.getVideoId(), slots.append(vid))
+        );
+        this.slots = slots;
+        this.positions = positions;
     }
 }
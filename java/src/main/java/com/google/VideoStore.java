@@ -0,0 +1,75 @@
+package com.google;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.ServiceLoader;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/** The interface implemented by the storage engines holding a {@link VideoLibrary}'s videos,
+ * selected through the {@code videos.store} system property. Further engines can be plugged in
+ * through a {@link VideoStoreProvider}. Stores are only accessed under the library's lock, so
+ * they needn't be thread-safe. */
+public interface VideoStore {
+    /** Retrieves a video by ID; returns null if not found. */
+    Video get(String id);
+
+    /** Adds a video, replacing any existing video with the same ID. */
+    void put(Video vid);
+
+    /** Replaces the title and tags of the stored video sharing a newer version's ID, keeping its
+     * identity and flag. */
+    void update(Video source);
+
+    /** Removes a video by ID; returns whether it was present. */
+    boolean remove(String id);
+
+    /** Returns the number of videos held. */
+    int size();
+
+    /** Performs an action for each video held. */
+    void forEach(Consumer<? super Video> action);
+
+    /** Returns the videos matching a filter, sorted in a given order. Engines able to divide the
+     * work, such as {@link ShardedVideoStore}, override this to scan in parallel. */
+    default List<Video> select(Predicate<? super Video> filter, Comparator<? super Video> order) {
+        final List<Video> vl = new ArrayList<>();
+        this.forEach(
+            vid -> {
+                if (filter.test(vid))
+                    vl.add(vid);
+            }
+        );
+        vl.sort(order);
+        return vl;
+    }
+
+    /** Returns a new, empty store of the engine named by the {@code videos.store} property,
+     * defaulting to {@code hash}. */
+    static VideoStore fromConfig() {
+        return named(System.getProperty("videos.store", "hash"));
+    }
+
+    /** Returns a new, empty store of a named engine, looking beyond the built-in engines to any
+     * registered {@link VideoStoreProvider}. */
+    static VideoStore named(String name) {
+        switch (name.strip().toLowerCase(Locale.ROOT)) {
+            case "hash":
+                return new HashVideoStore();
+            case "columnar":
+                return new ColumnarVideoStore();
+            case "disk":
+                return DiskVideoStore.fromConfig();
+            case "sharded":
+                return ShardedVideoStore.fromConfig();
+            default:
+                for (VideoStoreProvider provider : ServiceLoader.load(VideoStoreProvider.class)) {
+                    if (provider.name().equalsIgnoreCase(name.strip()))
+                        return provider.create();
+                }
+                throw new IllegalArgumentException("Unknown video store: " + name);
+        }
+    }
+}
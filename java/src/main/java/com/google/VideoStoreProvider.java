@@ -0,0 +1,13 @@
+package com.google;
+
+/** The service interface used to plug additional {@link VideoStore} engines into the library.
+ * Implementations are discovered through {@link java.util.ServiceLoader}, registered under
+ * {@code META-INF/services/com.google.VideoStoreProvider}, and selected by setting the
+ * {@code videos.store} property to their {@link #name()}. */
+public interface VideoStoreProvider {
+    /** Returns the name selecting the provider's engine. */
+    String name();
+
+    /** Returns a new, empty store. */
+    VideoStore create();
+}
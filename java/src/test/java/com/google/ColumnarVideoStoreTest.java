@@ -0,0 +1,100 @@
+package com.google;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class ColumnarVideoStoreTest {
+
+  private TagDictionary tags;
+  private ColumnarVideoStore store;
+
+  @BeforeEach
+  public void setUp() {
+    tags = new TagDictionary();
+    store = new ColumnarVideoStore();
+  }
+
+  private Video video(String title, String id, String... tagNames) {
+    return new Video(title, id, tags.intern(List.of(tagNames)), tags);
+  }
+
+  @Test
+  public void testStoreGrowsAndFindsEveryVideo() {
+    for (int i = 0; i < 1000; i++)
+      store.put(video("Title " + i, "id_" + i, "#tag" + (i % 7)));
+
+    assertEquals(1000, store.size());
+    for (int i = 0; i < 1000; i++) {
+      assertEquals("Title " + i, store.get("id_" + i).getTitle());
+      assertEquals(List.of("#tag" + (i % 7)), store.get("id_" + i).getTags());
+    }
+    assertNull(store.get("id_1000"));
+  }
+
+  @Test
+  public void testRemoveKeepsOtherVideosReachable() {
+    for (int i = 0; i < 100; i++)
+      store.put(video("Title " + i, "id_" + i));
+    for (int i = 0; i < 100; i += 3)
+      assertTrue(store.remove("id_" + i));
+
+    assertFalse(store.remove("id_0"));
+    assertEquals(66, store.size());
+    for (int i = 0; i < 100; i++)
+      assertEquals(i % 3 != 0, store.get("id_" + i) != null);
+  }
+
+  @Test
+  public void testUpdateKeepsFlag() {
+    store.put(video("Amazing Cats", "amazing_cats_video_id", "#cat"));
+    store.get("amazing_cats_video_id").flag(null);
+    store.update(video("Amazing Cats II", "amazing_cats_video_id", "#cat", "#sequel"));
+
+    var video = store.get("amazing_cats_video_id");
+    assertEquals("Amazing Cats II (amazing_cats_video_id) [#cat #sequel]", video.toString());
+    assertTrue(video.isFlagged());
+    assertEquals("Not supplied", video.getFlag());
+  }
+
+  @Test
+  public void testViewRefoldsTitleOnlyWhenRewritten() {
+    store.put(video("Amazing Cats", "amazing_cats_video_id"));
+    var view = store.get("amazing_cats_video_id");
+    var folded = view.getFoldedTitle();
+
+    assertEquals("amazing cats", folded);
+    assertTrue(folded == view.getFoldedTitle());
+    store.update(video("AMAZING Cats II", "amazing_cats_video_id"));
+    assertEquals("amazing cats ii", view.getFoldedTitle());
+  }
+
+  @Test
+  public void testArenaIsCompactedOnceMostlyUnused() {
+    for (int i = 0; i < 100; i++)
+      store.put(video("Title " + i, "id_" + i, "#tag" + (i % 7)));
+    var view = store.get("id_0");
+    assertEquals("title 0", view.getFoldedTitle());
+    for (int round = 0; round < 50; round++) {
+      for (int i = 0; i < 100; i += 2)
+        store.update(video("Title " + i + " v" + round, "id_" + i, "#tag" + round));
+      for (int i = 1; i < 100; i += 2) {
+        store.remove("id_" + i);
+        store.put(video("Title " + i, "id_" + i));
+      }
+    }
+
+    assertTrue(store.arenaSize() < 2 * 100 * "Title 00 v00id_00".length());
+    assertEquals("title 0 v49", view.getFoldedTitle());
+    for (int i = 0; i < 100; i++) {
+      var video = store.get("id_" + i);
+      assertEquals(i % 2 == 0 ? "Title " + i + " v49" : "Title " + i, video.getTitle());
+      assertEquals(i % 2 == 0 ? List.of("#tag49") : List.of(), video.getTags());
+    }
+  }
+}
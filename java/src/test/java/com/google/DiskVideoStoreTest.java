@@ -0,0 +1,84 @@
+package com.google;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class DiskVideoStoreTest {
+
+  private TagDictionary tags;
+  private DiskVideoStore store;
+
+  @BeforeEach
+  public void setUp(@TempDir Path dir) throws IOException {
+    tags = new TagDictionary();
+    store = new DiskVideoStore(dir.resolve("videos.dat"), 16);
+  }
+
+  private Video video(String title, String id, String... tagNames) {
+    return new Video(title, id, tags.intern(List.of(tagNames)), tags);
+  }
+
+  @Test
+  public void testStoreReadsEvictedVideosBackFromDisk() {
+    for (int i = 0; i < 5000; i++)
+      store.put(video("Title " + i, "id_" + i, "#tag" + (i % 7)));
+
+    assertEquals(5000, store.size());
+    for (int i = 4999; i >= 0; i--) {
+      var video = store.get("id_" + i);
+      assertEquals("Title " + i, video.getTitle());
+      assertEquals(List.of("#tag" + (i % 7)), video.getTags());
+    }
+    assertNull(store.get("id_5000"));
+
+    var seen = new HashSet<String>();
+    store.forEach(vid -> seen.add(vid.getVideoId()));
+    assertEquals(5000, seen.size());
+  }
+
+  @Test
+  public void testFlagSurvivesEviction() {
+    store.put(video("Amazing Cats", "amazing_cats_video_id", "#cat"));
+    store.get("amazing_cats_video_id").flag("dont_like_cats");
+    for (int i = 0; i < 100; i++)
+      store.put(video("Title " + i, "id_" + i));
+    System.gc();
+
+    var video = store.get("amazing_cats_video_id");
+    assertTrue(video.isFlagged());
+    assertEquals("dont_like_cats", video.getFlag());
+  }
+
+  @Test
+  public void testReferencedVideoStaysCanonical() {
+    store.put(video("Amazing Cats", "amazing_cats_video_id", "#cat"));
+    var held = store.get("amazing_cats_video_id");
+    for (int i = 0; i < 100; i++)
+      store.put(video("Title " + i, "id_" + i));
+
+    assertTrue(held == store.get("amazing_cats_video_id"));
+  }
+
+  @Test
+  public void testRemoveAndUpdate() {
+    for (int i = 0; i < 2000; i++)
+      store.put(video("Title " + i, "id_" + i));
+    store.update(video("Renamed", "id_10", "#new"));
+
+    assertTrue(store.remove("id_5"));
+    assertFalse(store.remove("id_5"));
+    assertNull(store.get("id_5"));
+    assertEquals(1999, store.size());
+    assertEquals("Renamed (id_10) [#new]", store.get("id_10").toString());
+  }
+}
@@ -1,6 +1,12 @@
 package com.google;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.containsString;
@@ -245,4 +251,146 @@ public class Part2Test extends TestBase {
     assertThat(outputStream.toString(),
         containsString("Cannot delete playlist my_playlist: Playlist does not exist"));
   }
+
+  @Test
+  public void testShowAllPlaylistsAfterDeletingByOtherCase() {
+    videoPlayer.createPlaylist("my_playlist");
+    videoPlayer.createPlaylist("another_playlist");
+    videoPlayer.createPlaylist("b_playlist");
+    videoPlayer.deletePlaylist("ANOTHER_playlist");
+    videoPlayer.createPlaylist("Another_Playlist");
+    videoPlayer.showAllPlaylists();
+
+    var lines = getOutputLines();
+    assertEquals(9, lines.length, outputStream.toString());
+    assertThat(lines[3], containsString("Deleted playlist: ANOTHER_playlist"));
+    assertThat(lines[4], containsString("Successfully created new playlist: Another_Playlist"));
+    assertThat(lines[6], containsString("Another_Playlist"));
+    assertThat(lines[7], containsString("b_playlist"));
+    assertThat(lines[8], containsString("my_playlist"));
+  }
+
+  @Test
+  public void testShowPlaylistsFor() {
+    videoPlayer.createPlaylist("my_playlist");
+    videoPlayer.createPlaylist("another_playlist");
+    videoPlayer.createPlaylist("b_playlist");
+    videoPlayer.createPlaylist("c_playlist");
+    videoPlayer.addVideoToPlaylist("my_playlist", "amazing_cats_video_id");
+    videoPlayer.addVideoToPlaylist("another_playlist", "amazing_cats_video_id");
+    videoPlayer.addVideoToPlaylist("b_playlist", "amazing_cats_video_id");
+    videoPlayer.addVideoToPlaylist("c_playlist", "amazing_cats_video_id");
+    videoPlayer.removeFromPlaylist("b_playlist", "amazing_cats_video_id");
+    videoPlayer.clearPlaylist("c_playlist");
+    videoPlayer.deletePlaylist("my_playlist");
+    outputStream.reset();
+    videoPlayer.showPlaylistsFor("amazing_cats_video_id");
+    videoPlayer.showPlaylistsFor("funny_dogs_video_id");
+    videoPlayer.showPlaylistsFor("does_not_exist");
+
+    var lines = getOutputLines();
+    assertEquals(4, lines.length, outputStream.toString());
+    assertEquals("Showing playlists containing: Amazing Cats", lines[0]);
+    assertEquals("\tanother_playlist", lines[1]);
+    assertEquals("No playlists contain video: Funny Dogs", lines[2]);
+    assertEquals("Cannot show playlists for video: Video does not exist", lines[3]);
+  }
+
+  @Test
+  public void testCatalogRemovalCascadesToPlaylists(@TempDir Path dir) throws IOException {
+    var catalog = dir.resolve("videos.txt");
+    Files.copy(VideoLibrary.catalogFile().toPath(), catalog);
+    var library = new VideoLibrary(CatalogLoader.MAPPED, catalog.toFile(), new HashVideoStore());
+    var player = new VideoPlayer(library, null);
+    player.createPlaylist("my_playlist");
+    player.addVideoToPlaylist("my_playlist", "amazing_cats_video_id");
+    player.addVideoToPlaylist("my_playlist", "funny_dogs_video_id");
+
+    Files.writeString(catalog, "Funny Dogs | funny_dogs_video_id |  #dog , #animal\n");
+    library.reload();
+    outputStream.reset();
+    player.showPlaylist("my_playlist");
+    player.showPlaylistsFor("funny_dogs_video_id");
+
+    var lines = getOutputLines();
+    assertEquals(4, lines.length, outputStream.toString());
+    assertEquals("Showing playlist: my_playlist", lines[0]);
+    assertEquals("\tFunny Dogs (funny_dogs_video_id) [#dog #animal]", lines[1]);
+    assertEquals("Showing playlists containing: Funny Dogs", lines[2]);
+    assertEquals("\tmy_playlist", lines[3]);
+  }
+
+  @Test
+  public void testAddVideosToPlaylist() {
+    videoPlayer.createPlaylist("my_playlist");
+    videoPlayer.addVideoToPlaylist("my_playlist", "funny_dogs_video_id");
+    videoPlayer.flagVideo("life_at_google_video_id");
+    outputStream.reset();
+    videoPlayer.addVideosToPlaylist("my_PLAYlist", List.of(
+        "amazing_cats_video_id", "funny_dogs_video_id", "life_at_google_video_id",
+        "does_not_exist", "amazing_cats_video_id", "nothing_video_id"));
+    videoPlayer.addVideosToPlaylist("another_playlist", List.of("amazing_cats_video_id"));
+    videoPlayer.showPlaylist("my_playlist");
+
+    var lines = getOutputLines();
+    assertEquals(6, lines.length, outputStream.toString());
+    assertEquals(
+        "Added 2 videos to my_PLAYlist (skipped 2 already added, 1 flagged, 1 not found)",
+        lines[0]);
+    assertEquals("Cannot add videos to another_playlist: Playlist does not exist", lines[1]);
+    assertThat(lines[3], containsString("Funny Dogs"));
+    assertThat(lines[4], containsString("Amazing Cats"));
+    assertThat(lines[5], containsString("Video about nothing"));
+  }
+
+  @Test
+  public void testImportPlaylist(@TempDir Path dir) throws IOException {
+    var file = dir.resolve("ids.txt");
+    Files.writeString(file, "amazing_cats_video_id\n\n  funny_dogs_video_id nothing_video_id\n");
+    videoPlayer.importPlaylist("my_playlist", file.toString());
+    videoPlayer.importPlaylist("MY_playlist", file.toString());
+    videoPlayer.importPlaylist("my_playlist", dir.resolve("missing.txt").toString());
+    videoPlayer.showAllPlaylists();
+
+    var lines = getOutputLines();
+    assertEquals(5, lines.length, outputStream.toString());
+    assertEquals("Added 3 videos to my_playlist", lines[0]);
+    assertEquals("Added 0 videos to MY_playlist (skipped 3 already added)", lines[1]);
+    assertEquals("Cannot import playlist my_playlist: File could not be read", lines[2]);
+    assertEquals("\tmy_playlist", lines[4]);
+  }
+
+  @Test
+  public void testClonePlaylist() {
+    videoPlayer.createPlaylist("my_playlist");
+    videoPlayer.createPlaylist("another_playlist");
+    videoPlayer.addVideoToPlaylist("my_playlist", "amazing_cats_video_id");
+    videoPlayer.addVideoToPlaylist("my_playlist", "funny_dogs_video_id");
+    outputStream.reset();
+    videoPlayer.clonePlaylist("MY_playlist", "my_copy");
+    videoPlayer.clonePlaylist("my_playlist", "ANOTHER_playlist");
+    videoPlayer.clonePlaylist("missing_playlist", "other_copy");
+    videoPlayer.removeFromPlaylist("my_copy", "amazing_cats_video_id");
+    videoPlayer.addVideoToPlaylist("my_copy", "nothing_video_id");
+    videoPlayer.showPlaylist("my_playlist");
+    videoPlayer.showPlaylist("my_copy");
+    videoPlayer.showPlaylistsFor("funny_dogs_video_id");
+
+    var lines = getOutputLines();
+    assertEquals(14, lines.length, outputStream.toString());
+    assertEquals("Successfully cloned playlist MY_playlist to my_copy", lines[0]);
+    assertEquals(
+        "Cannot clone playlist my_playlist: A playlist with the same name as ANOTHER_playlist "
+            + "already exists",
+        lines[1]);
+    assertEquals("Cannot clone playlist missing_playlist: Playlist does not exist", lines[2]);
+    assertThat(lines[6], containsString("Amazing Cats"));
+    assertThat(lines[7], containsString("Funny Dogs"));
+    assertEquals("Showing playlist: my_copy", lines[8]);
+    assertThat(lines[9], containsString("Funny Dogs"));
+    assertThat(lines[10], containsString("Video about nothing"));
+    assertEquals("Showing playlists containing: Funny Dogs", lines[11]);
+    assertEquals("\tmy_copy", lines[12]);
+    assertEquals("\tmy_playlist", lines[13]);
+  }
 }
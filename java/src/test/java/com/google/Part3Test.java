@@ -155,4 +155,79 @@ public class Part3Test extends TestBase {
     assertEquals(1, getOutputLines().length);
     assertThat(outputStream.toString(), containsString("No search results for #blah"));
   }
+
+  @Test
+  public void testSearchVideosPagedWithContinuationToken() {
+    setInput("2");
+
+    videoPlayer.searchVideos("at", 2, 0, null);
+
+    var lines = getOutputLines();
+    assertEquals(7, lines.length, outputStream.toString());
+    assertThat(lines[0], containsString("Here are the results for at:"));
+    assertThat(lines[1], containsString("1) Amazing Cats (amazing_cats_video_id) [#cat #animal]"));
+    assertThat(lines[2],
+        containsString("2) Another Cat Video (another_cat_video_id) [#cat #animal]"));
+    assertThat(lines[3], containsString("More results: SEARCH_VIDEOS at LIMIT 2 AFTER "));
+    assertThat(lines[6], containsString("Playing video: Another Cat Video"));
+
+    var token = lines[3].substring(lines[3].lastIndexOf(' ') + 1);
+    outputStream.reset();
+    setInput("3");
+
+    videoPlayer.searchVideos("at", 2, 0, token);
+
+    lines = getOutputLines();
+    assertEquals(6, lines.length, outputStream.toString());
+    assertThat(lines[1], containsString("3) Life at Google (life_at_google_video_id) [#google"));
+    assertThat(lines[5], containsString("Playing video: Life at Google"));
+  }
+
+  @Test
+  public void testSearchVideosWithTagPastLastPage() {
+    videoPlayer.searchVideosWithTag("#cat", 5, 2, null);
+    videoPlayer.searchVideosWithTag("#cat", 5, 0, "not_a_token");
+
+    var lines = getOutputLines();
+    assertEquals(2, lines.length, outputStream.toString());
+    assertThat(lines[0], containsString("No more search results for #cat"));
+    assertThat(lines[1],
+        containsString("Cannot search videos: Continuation token is invalid"));
+  }
+
+  @Test
+  public void testSearchVideosWithTagQuery() {
+    setInput("No");
+
+    videoPlayer.searchVideosWithTag("#animal NOT #dog OR #career");
+    videoPlayer.searchVideosWithTag("#animal AND");
+
+    var lines = getOutputLines();
+    assertEquals(7, lines.length, outputStream.toString());
+    assertThat(lines[0], containsString("Here are the results for #animal NOT #dog OR #career:"));
+    assertThat(lines[1], containsString("1) Amazing Cats (amazing_cats_video_id)"));
+    assertThat(lines[2], containsString("2) Another Cat Video (another_cat_video_id)"));
+    assertThat(lines[3], containsString("3) Life at Google (life_at_google_video_id)"));
+    assertThat(lines[6], containsString("Cannot search videos: Expected a tag after AND"));
+  }
+
+  @Test
+  public void testSuggestTitlesAndTags() {
+    videoPlayer.suggest("a", 5);
+    videoPlayer.flagVideo("amazing_cats_video_id");
+    videoPlayer.suggest("A", 1);
+    videoPlayer.suggest("#c", 5);
+    videoPlayer.suggest("zz", 5);
+
+    var lines = getOutputLines();
+    assertEquals(10, lines.length, outputStream.toString());
+    assertThat(lines[0], containsString("Here are the suggestions for a:"));
+    assertThat(lines[1], containsString("Amazing Cats"));
+    assertThat(lines[2], containsString("Another Cat Video"));
+    assertThat(lines[5], containsString("Another Cat Video"));
+    assertThat(lines[6], containsString("Here are the suggestions for #c:"));
+    assertThat(lines[7], containsString("#career"));
+    assertThat(lines[8], containsString("#cat"));
+    assertThat(lines[9], containsString("No suggestions for zz"));
+  }
 }
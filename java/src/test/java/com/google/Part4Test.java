@@ -278,4 +278,20 @@ public class Part4Test extends TestBase {
     assertThat(lines[7],
         containsString("Amazing Cats (amazing_cats_video_id) [#cat #animal]"));
   }
+
+  @Test
+  public void testShowFlaggedVideos() {
+    videoPlayer.showFlaggedVideos();
+    videoPlayer.flagVideo("life_at_google_video_id", "not_interesting");
+    videoPlayer.flagVideo("amazing_cats_video_id", "dont_like_cats");
+    videoPlayer.allowVideo("life_at_google_video_id");
+    videoPlayer.showFlaggedVideos();
+
+    var lines = getOutputLines();
+    assertEquals(6, lines.length, outputStream.toString());
+    assertThat(lines[0], containsString("No flagged videos"));
+    assertThat(lines[4], containsString("Here's a list of flagged videos:"));
+    assertThat(lines[5], containsString(
+        "Amazing Cats (amazing_cats_video_id) [#cat #animal] - FLAGGED (reason: dont_like_cats)"));
+  }
 }
@@ -0,0 +1,210 @@
+package com.google;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class PlayerJournalTest extends TestBase {
+
+  @Test
+  public void testPlaylistsAndFlagsSurviveRestart(@TempDir Path dir) {
+    var player = new VideoPlayer(new VideoLibrary(), dir);
+    player.createPlaylist("my_PLAYlist");
+    player.createPlaylist("another_playlist");
+    player.addVideoToPlaylist("my_playlist", "amazing_cats_video_id");
+    player.addVideoToPlaylist("my_playlist", "funny_dogs_video_id");
+    player.addVideoToPlaylist("my_playlist", "life_at_google_video_id");
+    player.removeFromPlaylist("my_playlist", "funny_dogs_video_id");
+    player.deletePlaylist("another_playlist");
+    player.flagVideo("life_at_google_video_id", "dont_like");
+    player.flagVideo("funny_dogs_video_id");
+    player.allowVideo("funny_dogs_video_id");
+    outputStream.reset();
+
+    var restarted = new VideoPlayer(new VideoLibrary(), dir);
+    restarted.showAllPlaylists();
+    restarted.showPlaylist("my_playlist");
+    restarted.showFlaggedVideos();
+
+    String[] lines = getOutputLines();
+    assertEquals(7, lines.length);
+    assertEquals("Showing all playlists:", lines[0]);
+    assertEquals("\tmy_PLAYlist", lines[1]);
+    assertEquals("Showing playlist: my_playlist", lines[2]);
+    assertEquals("\tAmazing Cats (amazing_cats_video_id) [#cat #animal]", lines[3]);
+    assertEquals(
+        "\tLife at Google (life_at_google_video_id) [#google #career] - FLAGGED (reason: "
+            + "dont_like)",
+        lines[4]);
+    assertEquals("Here's a list of flagged videos:", lines[5]);
+    assertEquals(
+        "\tLife at Google (life_at_google_video_id) [#google #career] - FLAGGED (reason: "
+            + "dont_like)",
+        lines[6]);
+  }
+
+  @Test
+  public void testBatchAdditionsSurviveRestart(@TempDir Path dir) throws IOException {
+    var file = dir.resolve("ids.txt");
+    Files.writeString(file, "another_cat_video_id\namazing_cats_video_id missing_video_id\n");
+    var state = dir.resolve("state");
+    var player = new VideoPlayer(new VideoLibrary(), state);
+    player.createPlaylist("my_playlist");
+    player.addVideosToPlaylist(
+        "my_playlist", List.of("funny_dogs_video_id", "life_at_google_video_id"));
+    player.importPlaylist("my_import", file.toString());
+    outputStream.reset();
+
+    var restarted = new VideoPlayer(new VideoLibrary(), state);
+    restarted.showPlaylist("my_playlist");
+    restarted.showPlaylist("my_import");
+
+    String[] lines = getOutputLines();
+    assertEquals(6, lines.length);
+    assertEquals("Showing playlist: my_playlist", lines[0]);
+    assertEquals("\tFunny Dogs (funny_dogs_video_id) [#dog #animal]", lines[1]);
+    assertEquals("\tLife at Google (life_at_google_video_id) [#google #career]", lines[2]);
+    assertEquals("Showing playlist: my_import", lines[3]);
+    assertEquals("\tAnother Cat Video (another_cat_video_id) [#cat #animal]", lines[4]);
+    assertEquals("\tAmazing Cats (amazing_cats_video_id) [#cat #animal]", lines[5]);
+  }
+
+  @Test
+  public void testClonesAreSnapshottedAsChanges(@TempDir Path dir) throws IOException {
+    var player = new VideoPlayer(new VideoLibrary(), dir);
+    player.createPlaylist("my_playlist");
+    player.addVideoToPlaylist("my_playlist", "amazing_cats_video_id");
+    player.addVideoToPlaylist("my_playlist", "funny_dogs_video_id");
+    player.addVideoToPlaylist("my_playlist", "life_at_google_video_id");
+    player.clonePlaylist("my_playlist", "my_copy");
+    player.removeFromPlaylist("my_copy", "funny_dogs_video_id");
+    player.addVideoToPlaylist("my_copy", "another_cat_video_id");
+    player.removeFromPlaylist("my_playlist", "amazing_cats_video_id");
+    player.addVideoToPlaylist("my_playlist", "amazing_cats_video_id");
+
+    new VideoPlayer(new VideoLibrary(), dir);
+    var snapshot = Files.readString(dir.resolve("journal.snap"), StandardCharsets.ISO_8859_1);
+    assertEquals(1, snapshot.split("amazing_cats_video_id", -1).length - 1);
+    outputStream.reset();
+
+    var restarted = new VideoPlayer(new VideoLibrary(), dir);
+    restarted.showPlaylist("my_copy");
+    restarted.showPlaylist("my_playlist");
+    restarted.showPlaylistsFor("funny_dogs_video_id");
+
+    String[] lines = getOutputLines();
+    assertEquals(10, lines.length);
+    assertEquals("Showing playlist: my_copy", lines[0]);
+    assertEquals("\tAmazing Cats (amazing_cats_video_id) [#cat #animal]", lines[1]);
+    assertEquals("\tLife at Google (life_at_google_video_id) [#google #career]", lines[2]);
+    assertEquals("\tAnother Cat Video (another_cat_video_id) [#cat #animal]", lines[3]);
+    assertEquals("Showing playlist: my_playlist", lines[4]);
+    assertEquals("\tFunny Dogs (funny_dogs_video_id) [#dog #animal]", lines[5]);
+    assertEquals("\tLife at Google (life_at_google_video_id) [#google #career]", lines[6]);
+    assertEquals("\tAmazing Cats (amazing_cats_video_id) [#cat #animal]", lines[7]);
+    assertEquals("Showing playlists containing: Funny Dogs", lines[8]);
+    assertEquals("\tmy_playlist", lines[9]);
+  }
+
+  @Test
+  public void testEvictionsSurviveRestart(@TempDir Path dir) throws IOException {
+    var catalog = dir.resolve("videos.txt");
+    Files.copy(VideoLibrary.catalogFile().toPath(), catalog);
+    var original = Files.readString(catalog);
+    var state = dir.resolve("state");
+    var library = new VideoLibrary(CatalogLoader.MAPPED, catalog.toFile());
+    var player = new VideoPlayer(library, state);
+    player.createPlaylist("my_playlist");
+    player.addVideoToPlaylist("my_playlist", "amazing_cats_video_id");
+    player.addVideoToPlaylist("my_playlist", "funny_dogs_video_id");
+
+    Files.writeString(catalog, "Funny Dogs | funny_dogs_video_id |  #dog , #animal\n");
+    library.reload();
+    Files.writeString(catalog, original);
+    library.reload();
+    outputStream.reset();
+
+    var restarted =
+        new VideoPlayer(new VideoLibrary(CatalogLoader.MAPPED, catalog.toFile()), state);
+    restarted.showPlaylist("my_playlist");
+
+    String[] lines = getOutputLines();
+    assertEquals(2, lines.length);
+    assertEquals("Showing playlist: my_playlist", lines[0]);
+    assertEquals("\tFunny Dogs (funny_dogs_video_id) [#dog #animal]", lines[1]);
+  }
+
+  @Test
+  public void testRecoveryStopsAtTornRecord(@TempDir Path dir) throws IOException {
+    var player = new VideoPlayer(new VideoLibrary(), dir);
+    player.createPlaylist("my_playlist");
+    player.addVideoToPlaylist("my_playlist", "amazing_cats_video_id");
+
+    List<Path> logs;
+    try (var paths = Files.list(dir)) {
+      logs = paths.filter(path -> path.toString().endsWith(".wal")).collect(Collectors.toList());
+    }
+    assertEquals(1, logs.size());
+    Files.write(
+        logs.get(0),
+        new byte[] {0, 0, 0, 40, 1, 2, 3},
+        StandardOpenOption.APPEND);
+    outputStream.reset();
+
+    var restarted = new VideoPlayer(new VideoLibrary(), dir);
+    restarted.showPlaylist("my_playlist");
+    restarted.addVideoToPlaylist("my_playlist", "funny_dogs_video_id");
+    restarted = new VideoPlayer(new VideoLibrary(), dir);
+    restarted.showPlaylist("my_playlist");
+
+    String[] lines = getOutputLines();
+    assertEquals(6, lines.length);
+    assertEquals("Showing playlist: my_playlist", lines[0]);
+    assertEquals("\tAmazing Cats (amazing_cats_video_id) [#cat #animal]", lines[1]);
+    assertEquals("Added video to my_playlist: Funny Dogs", lines[2]);
+    assertEquals("Showing playlist: my_playlist", lines[3]);
+    assertEquals("\tFunny Dogs (funny_dogs_video_id) [#dog #animal]", lines[5]);
+  }
+
+  @Test
+  public void testChangesAreRefusedUnlessRecorded(@TempDir Path dir) {
+    var player = new VideoPlayer(new VideoLibrary(), dir);
+    player.createPlaylist("my_playlist");
+    player.close();
+    outputStream.reset();
+
+    player.addVideoToPlaylist("my_playlist", "amazing_cats_video_id");
+    player.createPlaylist("another_playlist");
+    player.flagVideo("amazing_cats_video_id");
+    player.showPlaylist("my_playlist");
+    player.showAllPlaylists();
+    player.showFlaggedVideos();
+
+    String[] lines = getOutputLines();
+    assertEquals(8, lines.length);
+    assertEquals("Cannot add video to my_playlist: Changes could not be saved", lines[0]);
+    assertEquals("Cannot create playlist: Changes could not be saved", lines[1]);
+    assertEquals("Cannot flag video: Changes could not be saved", lines[2]);
+    assertEquals("Showing playlist: my_playlist", lines[3]);
+    assertEquals("\tNo videos here yet", lines[4]);
+    assertEquals("Showing all playlists:", lines[5]);
+    assertEquals("\tmy_playlist", lines[6]);
+    assertEquals("No flagged videos", lines[7]);
+  }
+
+  @Test
+  public void testUnopenableJournalIsReported(@TempDir Path dir) throws IOException {
+    Path file = Files.createFile(dir.resolve("state"));
+    assertThrows(UncheckedIOException.class, () -> new VideoPlayer(new VideoLibrary(), file));
+  }
+}
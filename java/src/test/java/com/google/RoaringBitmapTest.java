@@ -0,0 +1,39 @@
+package com.google;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Random;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+public class RoaringBitmapTest {
+
+  @Test
+  public void testMatchesBitSetAcrossContainerKinds() {
+    var bitmap = new RoaringBitmap();
+    var expected = new BitSet();
+    var random = new Random(42);
+    for (int i = 0; i < 20000; i++) {
+      int value = random.nextInt(200000);
+      assertEquals(!expected.get(value), bitmap.add(value));
+      expected.set(value);
+    }
+    for (int i = 0; i < 10000; i++) {
+      int value = random.nextInt(200000);
+      assertEquals(expected.get(value), bitmap.remove(value));
+      expected.clear(value);
+    }
+
+    assertEquals(expected.cardinality(), bitmap.cardinality());
+    var values = new ArrayList<Integer>();
+    bitmap.forEach(values::add);
+    assertEquals(expected.stream().boxed().collect(Collectors.toList()), values);
+    for (int rank = 0; rank < values.size(); rank += 97) {
+      assertEquals(values.get(rank), bitmap.select(rank));
+      assertEquals(rank, bitmap.rank(values.get(rank)));
+      assertEquals(rank + 1, bitmap.rank(values.get(rank) + 1));
+    }
+  }
+}
@@ -0,0 +1,89 @@
+package com.google;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class ShardedVideoStoreTest {
+
+  private TagDictionary tags;
+  private ShardedVideoStore store;
+
+  @BeforeEach
+  public void setUp() {
+    tags = new TagDictionary();
+    store = new ShardedVideoStore(
+        List.of(new HashVideoStore(), new HashVideoStore(), new HashVideoStore()));
+    for (int i = 0; i < 3000; i++)
+      store.put(new Video("Title " + (i % 1000), "id_" + i, TagDictionary.NONE, tags));
+  }
+
+  @Test
+  public void testLookupsRouteToOwningShard() {
+    assertEquals(3000, store.size());
+    for (int i = 0; i < 3000; i++)
+      assertEquals("id_" + i, store.get("id_" + i).getVideoId());
+  }
+
+  @Test
+  public void testSelectMergesShardsInTitleOrder() {
+    var selected = store.select(vid -> vid.getTitle().endsWith("7"), Video.TITLE_ORDER);
+
+    assertEquals(300, selected.size());
+    var sorted = new ArrayList<>(selected);
+    sorted.sort(Video.TITLE_ORDER);
+    assertEquals(sorted, selected);
+  }
+
+  @Test
+  public void testLibraryScansShardsForUnindexedSearches() {
+    var library = new VideoLibrary(
+        CatalogLoader.SCANNER,
+        VideoLibrary.catalogFile(),
+        new ShardedVideoStore(List.of(new ColumnarVideoStore(), new ColumnarVideoStore())));
+    library.flag(library.getVideo("amazing_cats_video_id"), null);
+
+    var found = new ArrayList<String>();
+    library.searchTitle("at").forEach(vid -> found.add(vid.getVideoId()));
+    assertEquals(List.of("another_cat_video_id", "life_at_google_video_id"), found);
+  }
+
+  @Test
+  public void testAddingShardMovesAboutOneNthOfVideos() {
+    var held = store.get("id_42");
+    int moved = store.addShard(new HashVideoStore());
+
+    assertEquals(4, store.shardCount());
+    assertTrue(moved > 3000 / 4 / 2 && moved < 3000 / 4 * 2, "moved " + moved);
+    assertEquals(3000, store.size());
+    for (int i = 0; i < 3000; i++)
+      assertEquals("id_" + i, store.get("id_" + i).getVideoId());
+    assertTrue(held == store.get("id_42"));
+  }
+
+  @Test
+  public void testAddingShardKeepsFlagsOfColumnarShards() {
+    var columnar = new ShardedVideoStore(
+        List.of(new ColumnarVideoStore(), new ColumnarVideoStore(), new ColumnarVideoStore()));
+    for (int i = 0; i < 3000; i++) {
+      var video = new Video("Title " + i, "id_" + i, TagDictionary.NONE, tags);
+      if (i % 2 == 0)
+        video.flag("reason_" + i);
+      columnar.put(video);
+    }
+    int moved = columnar.addShard(new ColumnarVideoStore());
+
+    assertTrue(moved > 0);
+    assertEquals(3000, columnar.size());
+    for (int i = 0; i < 3000; i++) {
+      var video = columnar.get("id_" + i);
+      assertEquals("Title " + i, video.getTitle());
+      assertEquals(i % 2 == 0, video.isFlagged());
+      assertEquals(i % 2 == 0 ? "reason_" + i : null, video.getFlag());
+    }
+  }
+}
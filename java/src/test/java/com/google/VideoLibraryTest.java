@@ -2,12 +2,25 @@ package com.google;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Consumer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 public class VideoLibraryTest {
 
@@ -18,6 +31,20 @@ public class VideoLibraryTest {
     videoLibrary = new VideoLibrary();
   }
 
+  private static Path copyCatalog(Path dir) throws IOException {
+    var catalog = dir.resolve("videos.txt");
+    Files.copy(VideoLibrary.catalogFile().toPath(), catalog);
+    return catalog;
+  }
+
+  private static VideoLibrary mappedCopy(Path dir) throws IOException {
+    return new VideoLibrary(CatalogLoader.MAPPED, copyCatalog(dir).toFile());
+  }
+
+  private static VideoLibrary mappedCopy(Path dir, VideoStore store) throws IOException {
+    return new VideoLibrary(CatalogLoader.MAPPED, copyCatalog(dir).toFile(), store);
+  }
+
   @Test
   public void testLibraryHasAllVideos() {
     assertEquals(videoLibrary.getVideos().size(), 5);
@@ -42,4 +69,400 @@ public class VideoLibraryTest {
     assertEquals("nothing_video_id", video.getVideoId());
     assertTrue(video.getTags().isEmpty());
   }
+
+  @Test
+  public void testMappedLoaderMatchesScannerLoader() {
+    var mapped = new VideoLibrary(CatalogLoader.MAPPED);
+
+    assertEquals(videoLibrary.getVideos().size(), mapped.getVideos().size());
+    for (Video video : videoLibrary.getVideos()) {
+      var other = mapped.getVideo(video.getVideoId());
+      assertNotNull(other);
+      assertEquals(video.getTitle(), other.getTitle());
+      assertEquals(video.getTags(), other.getTags());
+    }
+  }
+
+  @Test
+  public void testParallelLoaderMatchesScannerLoader() {
+    var parallel = new VideoLibrary(CatalogLoader.PARALLEL);
+
+    assertEquals(videoLibrary.getVideos().size(), parallel.getVideos().size());
+    for (Video video : videoLibrary.getVideos()) {
+      var other = parallel.getVideo(video.getVideoId());
+      assertNotNull(other);
+      assertEquals(video.getTitle(), other.getTitle());
+      assertEquals(video.getTags(), other.getTags());
+    }
+    assertEquals(5, parallel.getLoadMetrics().getEntries());
+    assertTrue(parallel.getLoadMetrics().getPhases().containsKey("merge"));
+  }
+
+  @Test
+  public void testSnapshotLoaderDecodesVideosOnRequest(@TempDir Path dir) throws IOException {
+    var catalog = copyCatalog(dir);
+    CatalogCompiler.compile(catalog.toFile(), dir.resolve("videos.txt.snap"));
+
+    var snapshot = new VideoLibrary(CatalogLoader.SNAPSHOT, catalog.toFile());
+    var video = snapshot.getVideo("amazing_cats_video_id");
+
+    assertNotNull(video);
+    assertEquals("Amazing Cats", video.getTitle());
+    assertEquals(List.of("#cat", "#animal"), video.getTags());
+    assertEquals(null, snapshot.getVideo("does_not_exist_video_id"));
+    assertEquals(5, snapshot.getVideos().size());
+  }
+
+  @Test
+  public void testSnapshotLoaderFallsBackWhenRecordIsCorrupt(@TempDir Path dir) throws IOException {
+    var catalog = copyCatalog(dir);
+    var snap = dir.resolve("videos.txt.snap");
+    CatalogCompiler.compile(catalog.toFile(), snap);
+
+    // Point the first record's first tag past the end of the tag table
+    byte[] bytes = Files.readAllBytes(snap);
+    int record = ByteBuffer.wrap(bytes).getInt(32);
+    int id = record + 1 + bytes[record];
+    bytes[id + 2 + bytes[id]] = 0x7F;
+    Files.write(snap, bytes);
+
+    var snapshot = new VideoLibrary(CatalogLoader.SNAPSHOT, catalog.toFile());
+
+    assertEquals(5, snapshot.getVideos().size());
+    for (var vid : videoLibrary.getVideos()) {
+      var copy = snapshot.getVideo(vid.getVideoId());
+      assertEquals(vid.getTitle(), copy.getTitle());
+      assertEquals(vid.getTags(), copy.getTags());
+    }
+  }
+
+  @Test
+  public void testSnapshotLoaderFallsBackWhenChecksumFails(@TempDir Path dir) throws IOException {
+    var catalog = copyCatalog(dir);
+    var snap = dir.resolve("videos.txt.snap");
+    CatalogCompiler.compile(catalog.toFile(), snap);
+
+    // Change the first record's title, which still decodes
+    byte[] bytes = Files.readAllBytes(snap);
+    int record = ByteBuffer.wrap(bytes).getInt(32);
+    bytes[record + 1] = 'X';
+    Files.write(snap, bytes);
+
+    var snapshot = new VideoLibrary(CatalogLoader.SNAPSHOT, catalog.toFile());
+
+    for (var vid : videoLibrary.getVideos())
+      assertEquals(vid.getTitle(), snapshot.getVideo(vid.getVideoId()).getTitle());
+  }
+
+  @Test
+  public void testSnapshotLoaderFallsBackWhenCatalogChanges(@TempDir Path dir) throws IOException {
+    File catalog = copyCatalog(dir).toFile();
+    CatalogCompiler.compile(catalog, dir.resolve("videos.txt.snap"));
+    Files.writeString(catalog.toPath(), "\nNew Video | new_video_id | #new\n",
+        StandardOpenOption.APPEND);
+
+    var snapshot = new VideoLibrary(CatalogLoader.SNAPSHOT, catalog);
+
+    assertEquals(6, snapshot.getVideos().size());
+    assertEquals("New Video", snapshot.getVideo("new_video_id").getTitle());
+  }
+
+  @Test
+  public void testReloadAppliesDiffInPlace(@TempDir Path dir) throws IOException {
+    var library = mappedCopy(dir, new HashVideoStore());
+    var catalog = dir.resolve("videos.txt");
+    var cats = library.getVideo("amazing_cats_video_id");
+    cats.flag("dont_like_cats");
+
+    Files.writeString(catalog,
+        "Amazing Cats II | amazing_cats_video_id | #cat , #sequel\n" +
+        "Funny Dogs | funny_dogs_video_id |  #dog , #animal\n" +
+        "New Video | new_video_id |\n");
+    library.reload();
+
+    assertEquals(3, library.getVideos().size());
+    assertEquals(null, library.getVideo("nothing_video_id"));
+    assertNotNull(library.getVideo("new_video_id"));
+    assertTrue(cats == library.getVideo("amazing_cats_video_id"));
+    assertEquals("Amazing Cats II", cats.getTitle());
+    assertEquals(List.of("#cat", "#sequel"), cats.getTags());
+    assertTrue(cats.isFlagged());
+  }
+
+  @Test
+  public void testReloadKeepsVideosWhenCatalogIsUnreadable(@TempDir Path dir) throws IOException {
+    var library = mappedCopy(dir, new HashVideoStore());
+    var catalog = dir.resolve("videos.txt");
+    var removed = new ArrayList<String>();
+    library.onRemoval(removed::add);
+
+    Files.writeString(catalog, "");
+    library.reload();
+    Files.delete(catalog);
+    library.reload();
+
+    assertEquals(5, library.getVideos().size());
+    assertTrue(removed.isEmpty());
+  }
+
+  @Test
+  public void testLibraryInternsTagsAcrossVideos() {
+    var cats = videoLibrary.getVideo("amazing_cats_video_id");
+    var another = videoLibrary.getVideo("another_cat_video_id");
+
+    assertEquals(cats.getTagIds()[0], another.getTagIds()[0]);
+    assertTrue(cats.getTags().get(0) == another.getTags().get(0));
+    assertTrue(cats.tagExists("#CAT"));
+    assertTrue(cats.hasTag(videoLibrary.getTagDictionary().find("#Animal")));
+    assertEquals(-1, videoLibrary.getTagDictionary().find("#dog_does_not_exist"));
+  }
+
+  @Test
+  public void testColumnarStoreServesViewsOfStoredVideos() {
+    var columnar = new VideoLibrary(
+        CatalogLoader.MAPPED, VideoLibrary.catalogFile(), new ColumnarVideoStore());
+    var video = columnar.getVideo("amazing_cats_video_id");
+
+    assertEquals(5, columnar.getVideos().size());
+    assertEquals("Amazing Cats", video.getTitle());
+    assertEquals(List.of("#cat", "#animal"), video.getTags());
+    assertTrue(video.tagExists("#Cat"));
+
+    video.flag("dont_like_cats");
+    var again = columnar.getVideo("amazing_cats_video_id");
+    assertTrue(again.isFlagged());
+    assertEquals("dont_like_cats", again.getFlag());
+    assertEquals(video, again);
+  }
+
+  @Test
+  public void testSnapshotIsSharedUntilCatalogChanges(@TempDir Path dir) throws IOException {
+    var library = mappedCopy(dir);
+    var catalog = dir.resolve("videos.txt");
+    var snapshot = library.snapshot();
+
+    assertTrue(snapshot == library.snapshot());
+    assertEquals(5, snapshot.size());
+    assertEquals("Amazing Cats", snapshot.byTitle().get(0).getTitle());
+    assertEquals("Video about nothing", snapshot.byTitle().get(4).getTitle());
+
+    Files.writeString(catalog, "\nA New Video | new_video_id |", StandardOpenOption.APPEND);
+    library.reload();
+
+    var reloaded = library.snapshot();
+    assertTrue(reloaded.getVersion() > snapshot.getVersion());
+    assertEquals(5, snapshot.size());
+    assertEquals(6, reloaded.size());
+    assertEquals("A New Video", reloaded.byTitle().get(0).getTitle());
+  }
+
+  @Test
+  public void testTagSearchFollowsFlagsAndReloads(@TempDir Path dir) throws IOException {
+    var library = mappedCopy(dir);
+    var catalog = dir.resolve("videos.txt");
+    var cats = library.getVideo("amazing_cats_video_id");
+
+    assertEquals(List.of(cats, library.getVideo("another_cat_video_id")),
+        library.searchTag("#CAT"));
+
+    library.flag(cats, "dont_like_cats");
+    assertEquals(List.of(library.getVideo("another_cat_video_id")), library.searchTag("#cat"));
+    library.unflag(cats);
+    assertEquals(2, library.searchTag("#cat").size());
+
+    Files.writeString(catalog,
+        "Zany Cats | amazing_cats_video_id | #cat\n" +
+        "Cat Nap | cat_nap_video_id | #Cat\n");
+    library.reload();
+
+    assertEquals(List.of(library.getVideo("cat_nap_video_id"), cats), library.searchTag("#cat"));
+    assertTrue(library.searchTag("#animal").isEmpty());
+  }
+
+  @Test
+  public void testTitleSearchUsesTrigramsAndShortTermFallback() {
+    var cats = videoLibrary.getVideo("amazing_cats_video_id");
+    var another = videoLibrary.getVideo("another_cat_video_id");
+
+    assertEquals(List.of(cats, another), videoLibrary.searchTitle("CAT"));
+    assertEquals(List.of(another), videoLibrary.searchTitle("other cat"));
+    assertTrue(videoLibrary.searchTitle("catz").isEmpty());
+    assertEquals(List.of(cats, another, videoLibrary.getVideo("life_at_google_video_id")),
+        videoLibrary.searchTitle("at"));
+
+    videoLibrary.flag(cats, null);
+    assertEquals(List.of(another), videoLibrary.searchTitle("cat"));
+    videoLibrary.unflag(cats);
+    assertEquals(List.of(cats, another), videoLibrary.searchTitle("cat"));
+  }
+
+  @Test
+  public void testPagedSearchesRejectBadLimitsAndOffsets() {
+    assertThrows(IllegalArgumentException.class, () -> videoLibrary.searchTitle("cat", 0, 0, null));
+    assertThrows(IllegalArgumentException.class, () -> videoLibrary.searchTag("#cat", 0, 0, null));
+    assertThrows(
+        IllegalArgumentException.class, () -> videoLibrary.searchTitle("cat", 1, -1, null));
+    assertEquals(1, videoLibrary.searchTitle("cat", 1, 1, null).getVideos().size());
+  }
+
+  @Test
+  public void testSampleDrawsEveryUnflaggedVideoOnly() {
+    videoLibrary.flag(videoLibrary.getVideo("amazing_cats_video_id"), null);
+    videoLibrary.flag(videoLibrary.getVideo("life_at_google_video_id"), null);
+
+    var random = new Random(7);
+    var drawn = new TreeSet<String>();
+    for (int i = 0; i < 100; i++)
+      drawn.add(videoLibrary.sample(random).getVideoId());
+    assertEquals(
+        Set.of("another_cat_video_id", "funny_dogs_video_id", "nothing_video_id"), drawn);
+
+    videoLibrary.getVideos().forEach(vid -> videoLibrary.flag(vid, null));
+    assertNull(videoLibrary.sample(random));
+  }
+
+  @Test
+  public void testTitleOrderFollowsRenamesOnReload(@TempDir Path dir) throws IOException {
+    var library = mappedCopy(dir);
+    var catalog = dir.resolve("videos.txt");
+    assertEquals("Amazing Cats", library.snapshot().byTitle().get(0).getTitle());
+
+    Files.writeString(catalog,
+        "Zany Cats | amazing_cats_video_id | #cat\n" +
+        "Cat Nap | cat_nap_video_id | #Cat\n");
+    library.reload();
+
+    var titles = new ArrayList<String>();
+    library.snapshot().forEach(vid -> titles.add(vid.getTitle()));
+    assertEquals(List.of("Cat Nap", "Zany Cats"), titles);
+    assertEquals(2, library.searchTitle("cat").size());
+    assertEquals("Cat Nap", library.searchTitle("cat").get(0).getTitle());
+    assertEquals(List.of("Zany Cats"), library.suggest("za", 5));
+    assertEquals(List.of("#cat"), library.suggest("#", 5));
+  }
+
+  @Test
+  public void testSearchCacheServesRepeatsUntilMembershipChanges(@TempDir Path dir)
+      throws IOException {
+    var library = mappedCopy(dir);
+    var catalog = dir.resolve("videos.txt");
+    var cache = library.getSearchCache();
+    var cats = library.searchTitle("cat");
+
+    assertTrue(cats == library.searchTitle("CAT"));
+    assertTrue(cats == library.searchTitle("cat"));
+    var google = library.searchTag("#google");
+    library.flag(library.getVideo("life_at_google_video_id"), null);
+    assertTrue(cats == library.searchTitle("cat"));
+    assertTrue(library.searchTag("#google").isEmpty());
+    assertEquals(1, google.size());
+
+    Files.writeString(catalog, "\nCat Nap | cat_nap_video_id |", StandardOpenOption.APPEND);
+    library.reload();
+    assertEquals(3, library.searchTitle("cat").size());
+    assertEquals(3, cache.getHits());
+    assertEquals(4, cache.getMisses());
+    assertEquals(2, cache.getInvalidations());
+  }
+
+  @Test
+  public void testTagQueriesMatchBruteForce(@TempDir Path dir) throws IOException {
+    var catalog = new StringBuilder();
+    for (int i = 0; i < 500; i++) {
+      catalog.append("Video ").append(i).append(" | id_").append(i).append(" | #all");
+      for (int t = 2; t <= 7; t++) {
+        if (i % t == 0)
+          catalog.append(", #d").append(t);
+      }
+      catalog.append('\n');
+    }
+    var file = dir.resolve("videos.txt");
+    Files.writeString(file, catalog);
+    var library = new VideoLibrary(CatalogLoader.MAPPED, file.toFile());
+    library.flag(library.getVideo("id_42"), null);
+
+    var matches = library.searchTag("#d2 AND #D3 NOT #d7 OR #d5 and #all");
+    var expected = library.search(
+        vid -> !vid.isFlagged() && (vid.tagExists("#d2") && vid.tagExists("#d3")
+            && !vid.tagExists("#d7") || vid.tagExists("#d5")));
+    assertEquals(expected, matches);
+    assertEquals(expected.subList(10, 15),
+        library.searchTag("#d2 AND #d3 NOT #d7 OR #d5", 5, 10, null).getVideos());
+    var paged = new ArrayList<Video>();
+    String token = null;
+    do {
+      var page = library.searchTag("#d2 AND #d3 NOT #d7 OR #d5", 7, 0, token);
+      paged.addAll(page.getVideos());
+      token = page.getToken();
+    } while (token != null);
+    assertEquals(expected, paged);
+    assertTrue(library.searchTag("#d2 AND #missing").isEmpty());
+  }
+
+  @Test
+  public void testIndexesAreBuiltWithoutReadingTheStore(@TempDir Path dir) throws IOException {
+    var catalog = new StringBuilder();
+    for (int i = 0; i < 2000; i++) {
+      catalog.append("Video ").append(i * 7919 % 2000).append(" | id_").append(i);
+      catalog.append(i % 10 == 0 ? " | #tenth\n" : " | #other\n");
+    }
+    var file = dir.resolve("videos.txt");
+    Files.writeString(file, catalog);
+    var gets = new int[1];
+    var store = new HashVideoStore();
+    var counting = new VideoStore() {
+      @Override
+      public Video get(String id) {
+        gets[0]++;
+        return store.get(id);
+      }
+
+      @Override
+      public void put(Video vid) {
+        store.put(vid);
+      }
+
+      @Override
+      public void update(Video source) {
+        store.update(source);
+      }
+
+      @Override
+      public boolean remove(String id) {
+        return store.remove(id);
+      }
+
+      @Override
+      public int size() {
+        return store.size();
+      }
+
+      @Override
+      public void forEach(Consumer<? super Video> action) {
+        store.forEach(action);
+      }
+    };
+    var library = new VideoLibrary(CatalogLoader.MAPPED, file.toFile(), counting);
+    gets[0] = 0;
+
+    assertEquals(200, library.searchTag("#tenth").size());
+    assertEquals(10, library.searchTag("#tenth", 10, 0, null).getVideos().size());
+    assertTrue(gets[0] < 3000, gets[0] + " reads");          // One per video, none per comparison
+  }
+
+  @Test
+  public void testParallelScanMatchesSequentialScan(@TempDir Path dir) throws IOException {
+    var catalog = new StringBuilder();
+    for (int i = 0; i < 20000; i++)
+      catalog.append("Video ").append(i * 7919 % 20000).append(" | id_").append(i).append('\n');
+    var file = dir.resolve("videos.txt");
+    Files.writeString(file, catalog);
+    var library = new VideoLibrary(CatalogLoader.MAPPED, file.toFile());
+
+    var sequential = library.search(vid -> vid.getTitle().endsWith("7"), Integer.MAX_VALUE);
+    assertEquals(sequential, library.search(vid -> vid.getTitle().endsWith("7"), 1000));
+    assertEquals(2000, sequential.size());
+    assertEquals(
+        library.searchTitle("77"), library.search(vid -> vid.getTitle().contains("77"), 1000));
+  }
 }
@@ -0,0 +1,159 @@
+package com.google;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+public class VideoPlaylistTest {
+
+  private final TagDictionary tags = new TagDictionary();
+
+  private Video video(int i) {
+    return new Video("Title " + i, "id_" + i, TagDictionary.NONE, tags);
+  }
+
+  @Test
+  public void testKeepsInsertionOrderAcrossRemovals() {
+    var playlist = new VideoPlaylist("my_playlist");
+    var expected = new ArrayList<Video>();
+    for (int i = 0; i < 1000; i++) {
+      assertTrue(playlist.add(video(i)));
+      expected.add(video(i));
+    }
+    assertFalse(playlist.add(video(7)));
+
+    for (int i = 0; i < 1000; i += 3) {
+      assertTrue(playlist.remove(video(i)));
+      expected.remove(video(i));
+    }
+    assertFalse(playlist.remove(video(0)));
+    assertTrue(playlist.add(video(0)));
+    expected.add(video(0));
+
+    assertEquals(expected.size(), playlist.size());
+    assertEquals(expected, new ArrayList<>(playlist.getVideos()));
+    assertEquals(video(5), playlist.get(3));
+    assertEquals(expected.size() - 1, playlist.indexOf(video(0)));
+    assertTrue(playlist.contains(video(1)));
+    assertFalse(playlist.contains(video(3)));
+  }
+
+  @Test
+  public void testClearEmptiesPlaylist() {
+    var playlist = new VideoPlaylist("my_playlist");
+    playlist.add(video(1));
+    playlist.add(video(2));
+    playlist.clear();
+
+    assertTrue(playlist.isEmpty());
+    assertEquals(List.of(), playlist.getVideos());
+    assertTrue(playlist.add(video(2)));
+    assertEquals(List.of(video(2)), playlist.getVideos());
+  }
+
+  @Test
+  public void testClonesDivergeIndependently() {
+    var random = new Random(42);
+    var original = new VideoPlaylist("original");
+    var expected = new ArrayList<Video>();
+    for (int i = 0; i < 5000; i++) {
+      original.add(video(i));
+      expected.add(video(i));
+    }
+    // "Aa" and "BB" share a hash code, as do "AaAa", "AaBB", "BBAa" and "BBBB"
+    for (String id : List.of("Aa", "BB", "AaAa", "AaBB", "BBAa", "BBBB")) {
+      var video = new Video(id, id, TagDictionary.NONE, tags);
+      assertTrue(original.add(video));
+      expected.add(video);
+    }
+
+    var copies = new ArrayList<VideoPlaylist>();
+    var models = new ArrayList<List<Video>>();
+    for (int c = 0; c < 5; c++) {
+      var copy = original.copy("copy_" + c);
+      var model = new ArrayList<>(expected);
+      for (int i = 0; i < 2000; i++) {
+        var video = random.nextBoolean()
+            ? model.get(random.nextInt(model.size()))
+            : video(5000 + random.nextInt(1000));
+        if (model.contains(video)) {
+          assertTrue(copy.remove(video));
+          model.remove(video);
+        } else {
+          assertTrue(copy.add(video));
+          model.add(video);
+        }
+      }
+      copies.add(copy);
+      models.add(model);
+    }
+    assertTrue(original.remove(expected.remove(0)));
+    var stripped = copies.get(0);
+    var kept = new ArrayList<Video>();
+    for (int i = 0; i < models.get(0).size(); i++) {
+      if (i % 10 == 0)
+        kept.add(models.get(0).get(i));
+      else
+        assertTrue(stripped.remove(models.get(0).get(i)));
+    }
+    models.set(0, kept);
+
+    assertEquals(expected, new ArrayList<>(original.getVideos()));
+    for (int c = 0; c < copies.size(); c++) {
+      var copy = copies.get(c);
+      var model = models.get(c);
+      assertEquals(model, new ArrayList<>(copy.getVideos()));
+      assertEquals(model.size(), copy.size());
+      for (int i = 0; i < model.size(); i += 97) {
+        assertEquals(model.get(i), copy.get(i));
+        assertEquals(i, copy.indexOf(model.get(i)));
+      }
+      assertEquals(model.contains(video(0)), copy.contains(video(0)));
+    }
+  }
+
+  @Test
+  public void testRegistryFindsPlaylistsHoldingEachVideo() {
+    var random = new Random(7);
+    var registry = new PlaylistRegistry();
+    var names = new ArrayList<String>();
+    for (int step = 0; step < 3000; step++) {
+      var pl = names.isEmpty() ? null : registry.get(names.get(random.nextInt(names.size())));
+      var op = pl == null ? 0 : random.nextInt(10);
+      if (op == 0) {
+        names.add("pl_" + step);
+        registry.create("pl_" + step);
+      } else if (op < 3) {
+        names.add("clone_" + step);
+        registry.copy(pl, "clone_" + step);
+      } else if (op < 6)
+        registry.add(pl, video(random.nextInt(50)));
+      else if (op < 8)
+        registry.remove(pl, video(random.nextInt(50)));
+      else if (op == 8)
+        registry.evict("id_" + random.nextInt(50));
+      else if (random.nextBoolean())
+        registry.clear(pl);
+      else {
+        registry.remove(pl.getName());
+        names.remove(pl.getName());
+      }
+
+      var id = "id_" + random.nextInt(50);
+      var expected = new ArrayList<String>();
+      registry.sorted().forEach(
+          each -> {
+            if (each.contains(video(Integer.parseInt(id.substring(3)))))
+              expected.add(each.getName());
+          });
+      var found = new ArrayList<String>();
+      registry.containing(id).forEach(each -> found.add(each.getName()));
+      assertEquals(expected, found);
+    }
+  }
+}